@@ -0,0 +1,402 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fires thousands of concurrent sagas at the gateway while stub order, payment and shipping services,
+ * started inside this process, fail a share of the steps. Every saga is then checked against what the
+ * stubs saw: the compensations it reports must equal the compensating calls that reached the stubs, a
+ * failed saga must have undone everything it created, and the gateway's metrics must count every saga
+ * exactly once.
+ *
+ * Start the gateway against the stub ports, then run the harness. Exact counts need the inline compensation
+ * attempt, otherwise compensations reach the stubs after the responses. The limiter and breaker settings are
+ * optional; with the defaults most sagas are shed before they reach the stubs, which still has to add up.
+ *   mvn spring-boot:run -Dspring-boot.run.arguments="--service.order.url=http://localhost:18082
+ *       --service.shipping.url=http://localhost:18083 --service.payment.url=http://localhost:18084
+ *       --compensation-queue.attempt-inline=true
+ *       --concurrency-limit.initial-limit=400 --concurrency-limit.min-limit=400 --concurrency-limit.queue-timeout=5s
+ *       --circuit-breaker.failure-rate-threshold=100 --circuit-breaker.slow-call-rate-threshold=100"
+ *   java benchmark/SagaStressHarness.java [gatewayUrl] [sagas] [concurrency] [failurePercent] [stubLatencyMs]
+ */
+public class SagaStressHarness {
+
+    private static final int ORDER_PORT = 18082;
+    private static final int SHIPPING_PORT = 18083;
+    private static final int PAYMENT_PORT = 18084;
+
+    private static final Pattern SAGA_NAME = Pattern.compile("\"customerName\":\"stress-(\\d+)\"");
+    private static final Pattern ORDER_ID = Pattern.compile("\"orderId\":(\\d+)");
+    private static final Pattern PATH_ID = Pattern.compile("/api/\\w+/(\\d+)/\\w+");
+    private static final Pattern SUCCESS = Pattern.compile("\"success\":(true|false)");
+    private static final Pattern COMPENSATIONS = Pattern.compile("\"compensations\":(\\d+)");
+    private static final Pattern MESSAGE = Pattern.compile("\"errorDetails\":\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    public static void main(String[] args) throws Exception {
+        String gatewayUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int sagas = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int failurePercent = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        int stubLatencyMs = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+        Stubs stubs = new Stubs(sagas, failurePercent, stubLatencyMs);
+        List<HttpServer> servers = stubs.start();
+
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        post(http, gatewayUrl + "/api/gateway/metrics/reset");
+        long recordedBefore = writerStat(http, gatewayUrl, "recorded");
+
+        Outcome[] outcomes = new Outcome[sagas];
+        Semaphore inFlight = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> calls = new ArrayList<>(sagas);
+            for (int i = 0; i < sagas; i++) {
+                int saga = i;
+                inFlight.acquire();
+                calls.add(callers.submit(() -> {
+                    try {
+                        outcomes[saga] = placeOrder(http, gatewayUrl, saga);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+            }
+            for (Future<?> call : calls) {
+                call.get();
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        // give the metrics writer a few flush intervals
+        Thread.sleep(1_000);
+        servers.forEach(server -> server.stop(0));
+
+        List<String> errors = new ArrayList<>();
+        int succeeded = 0;
+        int compensated = 0;
+        int leftForRecovery = 0;
+        Map<String, Integer> failures = new TreeMap<>();
+        for (int i = 0; i < sagas; i++) {
+            Outcome outcome = outcomes[i];
+            SagaStubState state = stubs.state(i);
+            if (outcome.compensations() < 0) {
+                errors.add("saga " + i + ": unreadable response " + outcome.status() + " (" + outcome.message() + ")");
+                continue;
+            }
+            if (outcome.compensations() != state.compensations()) {
+                errors.add("saga " + i + ": reported " + outcome.compensations()
+                        + " compensations, stubs received " + state.compensations() + " (" + outcome.message() + ")");
+            }
+            if (state.duplicateCompensation()) {
+                errors.add("saga " + i + ": a step was compensated more than once");
+            }
+            if (!outcome.success()) {
+                failures.merge(outcome.message().replaceAll("\\d+", "N"), 1, Integer::sum);
+            }
+            if (outcome.success()) {
+                succeeded++;
+                if (!state.complete() || state.compensations() > 0) {
+                    errors.add("saga " + i + ": succeeded but the stubs hold " + state);
+                }
+            } else if (state.undone()) {
+                compensated++;
+            } else {
+                // a compensation that failed at the gateway leaves the saga open for recovery
+                leftForRecovery++;
+            }
+        }
+
+        long recorded = writerStat(http, gatewayUrl, "recorded") - recordedBefore;
+        if (recorded != sagas) {
+            errors.add("metrics writer recorded " + recorded + " sagas, expected " + sagas);
+        }
+        long totalCount = sagaTotalCount(http, gatewayUrl);
+        if (totalCount != sagas) {
+            errors.add("SAGA TOTAL latency histogram counted " + totalCount + " sagas, expected " + sagas);
+        }
+
+        System.out.printf("%d sagas in %.1f s (%.0f/s) at concurrency %d with %d%% injected failures%n",
+                sagas, elapsed, sagas / elapsed, concurrency, failurePercent);
+        System.out.printf("succeeded %d, failed and compensated %d, left for recovery %d%n",
+                succeeded, compensated, leftForRecovery);
+        System.out.printf("compensations received by stubs: %d%n", stubs.totalCompensations());
+        failures.forEach((message, count) -> System.out.printf("  %5d x %s%n", count, message));
+        if (errors.isEmpty()) {
+            System.out.println("OK: compensation counts and metrics are exact");
+        } else {
+            System.out.println(errors.size() + " inconsistencies, first ones:");
+            errors.stream().limit(20).forEach(error -> System.out.println("  " + error));
+            System.exit(1);
+        }
+    }
+
+    private static Outcome placeOrder(HttpClient http, String gatewayUrl, int saga) {
+        String body = "{\"customerName\":\"stress-" + saga + "\",\"customerEmail\":\"stress-" + saga + "@example.com\","
+                + "\"shippingAddress\":\"1 Stress Street\",\"paymentMethod\":\"CREDIT_CARD\",\"paymentProvider\":\"FINA\","
+                + "\"cardLastFourDigits\":\"4242\",\"carrier\":\"GLS\",\"orderItems\":[{\"productId\":1,\"quantity\":1}]}";
+        try {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(gatewayUrl + "/api/gateway/place-order-saga"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            Matcher success = SUCCESS.matcher(response.body());
+            Matcher compensations = COMPENSATIONS.matcher(response.body());
+            Matcher message = MESSAGE.matcher(response.body());
+            if (!success.find() || !compensations.find()) {
+                return new Outcome(response.statusCode(), false, -1, response.body());
+            }
+            return new Outcome(response.statusCode(), Boolean.parseBoolean(success.group(1)),
+                    Integer.parseInt(compensations.group(1)), message.find() ? message.group(1) : "");
+        } catch (Exception e) {
+            return new Outcome(-1, false, -1, e.toString());
+        }
+    }
+
+    private static void post(HttpClient http, String url) throws Exception {
+        http.send(HttpRequest.newBuilder(URI.create(url)).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static long writerStat(HttpClient http, String gatewayUrl, String field) throws Exception {
+        String stats = http.send(HttpRequest.newBuilder(URI.create(gatewayUrl + "/api/gateway/metrics/writer")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Matcher matcher = Pattern.compile("\"" + field + "\":(\\d+)").matcher(stats);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static long sagaTotalCount(HttpClient http, String gatewayUrl) throws Exception {
+        String metrics = http.send(HttpRequest.newBuilder(URI.create(gatewayUrl + "/api/gateway/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Matcher matcher = Pattern.compile("\"protocol\":\"SAGA\",\"step\":\"total\".*?\"sinceReset\":\\{\"count\":(\\d+)")
+                .matcher(metrics);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private record Outcome(int status, boolean success, int compensations, String message) {
+    }
+
+    // What the stubs saw for one saga
+    private static class SagaStubState {
+        final AtomicInteger orders = new AtomicInteger();
+        final AtomicInteger payments = new AtomicInteger();
+        final AtomicInteger shipments = new AtomicInteger();
+        final AtomicInteger cancelledOrders = new AtomicInteger();
+        final AtomicInteger refundedPayments = new AtomicInteger();
+        final AtomicInteger cancelledShipments = new AtomicInteger();
+
+        int compensations() {
+            return cancelledOrders.get() + refundedPayments.get() + cancelledShipments.get();
+        }
+
+        boolean complete() {
+            return orders.get() == 1 && payments.get() == 1 && shipments.get() == 1;
+        }
+
+        boolean undone() {
+            return cancelledOrders.get() == orders.get()
+                    && refundedPayments.get() == payments.get()
+                    && cancelledShipments.get() == shipments.get();
+        }
+
+        boolean duplicateCompensation() {
+            return cancelledOrders.get() > 1 || refundedPayments.get() > 1 || cancelledShipments.get() > 1;
+        }
+
+        @Override
+        public String toString() {
+            return "orders=" + orders + " payments=" + payments + " shipments=" + shipments
+                    + " cancelledOrders=" + cancelledOrders + " refunds=" + refundedPayments
+                    + " cancelledShipments=" + cancelledShipments;
+        }
+    }
+
+    // Order, payment and shipping stand-ins. Whether a step fails is fixed per saga up front, so the
+    // failures land on random sagas but a retried call would see the same answer.
+    private static class Stubs {
+
+        private final SagaStubState[] states;
+        private final boolean[] failPayment;
+        private final boolean[] failShipment;
+        private final int latencyMs;
+
+        private final AtomicLong ids = new AtomicLong(1);
+        private final Map<Long, Integer> sagaByOrder = new ConcurrentHashMap<>();
+        private final Map<Long, Integer> sagaByPayment = new ConcurrentHashMap<>();
+        private final Map<Long, Integer> sagaByShipment = new ConcurrentHashMap<>();
+
+        Stubs(int sagas, int failurePercent, int latencyMs) {
+            this.states = new SagaStubState[sagas];
+            this.failPayment = new boolean[sagas];
+            this.failShipment = new boolean[sagas];
+            this.latencyMs = latencyMs;
+
+            Random random = new Random(42);
+            for (int i = 0; i < sagas; i++) {
+                states[i] = new SagaStubState();
+                failPayment[i] = random.nextInt(100) < failurePercent;
+                failShipment[i] = random.nextInt(100) < failurePercent;
+            }
+        }
+
+        SagaStubState state(int saga) {
+            return states[saga];
+        }
+
+        long totalCompensations() {
+            long total = 0;
+            for (SagaStubState state : states) {
+                total += state.compensations();
+            }
+            return total;
+        }
+
+        List<HttpServer> start() throws IOException {
+            // headers and body go out as separate writes; without this each response waits out a delayed ACK
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+            // past the default 200 idle connections the server closes them, and the gateway's pool reuses them
+            System.setProperty("sun.net.httpserver.maxIdleConnections", "10000");
+            return List.of(
+                    server(ORDER_PORT, this::order),
+                    server(PAYMENT_PORT, this::payment),
+                    server(SHIPPING_PORT, this::shipping));
+        }
+
+        private HttpServer server(int port, Handler handler) throws IOException {
+            HttpServer server = HttpServer.create(new InetSocketAddress(port), 1_000);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.createContext("/", exchange -> {
+                try (exchange) {
+                    String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                    if (latencyMs > 0) {
+                        Thread.sleep(latencyMs);
+                    }
+                    handler.handle(exchange, exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath(), body);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            server.start();
+            return server;
+        }
+
+        private void order(HttpExchange exchange, String request, String body) throws IOException {
+            if (request.equals("POST /api/orders")) {
+                int saga = find(SAGA_NAME, body);
+                long id = ids.getAndIncrement();
+                sagaByOrder.put(id, saga);
+                states[saga].orders.incrementAndGet();
+                respond(exchange, 201, "{\"id\":" + id + ",\"status\":\"CONFIRMED\",\"totalAmount\":10.00}");
+            } else if (request.startsWith("DELETE /api/orders/") && request.endsWith("/cancel")) {
+                states[sagaByOrder.get(pathId(request))].cancelledOrders.incrementAndGet();
+                respond(exchange, 204, null);
+            } else {
+                notStressed(exchange, request);
+            }
+        }
+
+        private void payment(HttpExchange exchange, String request, String body) throws IOException {
+            if (request.equals("POST /api/payments")) {
+                int saga = sagaByOrder.get((long) find(ORDER_ID, body));
+                if (failPayment[saga]) {
+                    respond(exchange, 503, "{\"status\":503,\"message\":\"Injected payment failure\"}");
+                    return;
+                }
+                long id = ids.getAndIncrement();
+                sagaByPayment.put(id, saga);
+                states[saga].payments.incrementAndGet();
+                respond(exchange, 201, "{\"id\":" + id + ",\"status\":\"COMPLETED\",\"transactionId\":\"tx-" + id + "\"}");
+            } else if (request.startsWith("POST /api/payments/") && request.endsWith("/refund")) {
+                states[sagaByPayment.get(pathId(request))].refundedPayments.incrementAndGet();
+                respond(exchange, 200, "{}");
+            } else {
+                notStressed(exchange, request);
+            }
+        }
+
+        private void shipping(HttpExchange exchange, String request, String body) throws IOException {
+            if (request.equals("POST /api/shipments")) {
+                int saga = sagaByOrder.get((long) find(ORDER_ID, body));
+                if (failShipment[saga]) {
+                    respond(exchange, 503, "{\"status\":503,\"message\":\"Injected shipment failure\"}");
+                    return;
+                }
+                long id = ids.getAndIncrement();
+                sagaByShipment.put(id, saga);
+                states[saga].shipments.incrementAndGet();
+                respond(exchange, 201, "{\"id\":" + id + ",\"status\":\"PENDING\",\"trackingNumber\":\"TRK-" + id + "\"}");
+            } else if (request.startsWith("PUT /api/shipments/") && request.endsWith("/cancel")) {
+                states[sagaByShipment.get(pathId(request))].cancelledShipments.incrementAndGet();
+                respond(exchange, 200, "{}");
+            } else {
+                notStressed(exchange, request);
+            }
+        }
+
+        // The in-doubt resolver polls for prepared 2PC participants; there never are any here
+        private void notStressed(HttpExchange exchange, String request) throws IOException {
+            if (request.startsWith("GET ") && request.contains("/status/")) {
+                respond(exchange, 200, "[]");
+            } else {
+                respond(exchange, 404, "{\"status\":404,\"message\":\"Not stubbed: " + request + "\"}");
+            }
+        }
+
+        private static int find(Pattern pattern, String body) {
+            Matcher matcher = pattern.matcher(body);
+            if (!matcher.find()) {
+                throw new IllegalArgumentException("No " + pattern + " in " + body);
+            }
+            return Integer.parseInt(matcher.group(1));
+        }
+
+        private static long pathId(String request) {
+            Matcher matcher = PATH_ID.matcher(request);
+            if (!matcher.find()) {
+                throw new IllegalArgumentException("No ID in " + request);
+            }
+            return Long.parseLong(matcher.group(1));
+        }
+
+        private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+            if (json == null) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+
+        private interface Handler {
+            void handle(HttpExchange exchange, String request, String body) throws IOException;
+        }
+    }
+}
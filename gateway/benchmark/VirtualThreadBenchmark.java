@@ -0,0 +1,213 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Gateway saga throughput with thousands of orders in flight, to compare the gateway with and without the
+ * virtual-threads profile. Stub order, payment and shipping services run inside this process and answer
+ * every call after a fixed delay, so the gateway's own threading is what differs between the two runs.
+ *
+ * Start the gateway against the stubs, once as below and once with --spring.profiles.active=virtual-threads
+ * added. The pools, limiter and breakers are opened up so neither run is shed by them:
+ *   mvn spring-boot:run -Dspring-boot.run.arguments="--service.order.url=http://localhost:18082
+ *       --service.shipping.url=http://localhost:18083 --service.payment.url=http://localhost:18084
+ *       --service.order.pool.max-connections=5000 --service.payment.pool.max-connections=5000
+ *       --service.shipping.pool.max-connections=5000 --service.order.pool.connection-request-timeout=60s
+ *       --service.payment.pool.connection-request-timeout=60s --service.shipping.pool.connection-request-timeout=60s
+ *       --concurrency-limit.initial-limit=5000 --concurrency-limit.min-limit=5000 --concurrency-limit.queue-timeout=60s
+ *       --circuit-breaker.failure-rate-threshold=100 --circuit-breaker.slow-call-rate-threshold=100
+ *       --circuit-breaker.slow-call-duration=10m --deadline.default-timeout=120s --logging.level.hr.fer=WARN"
+ *   java benchmark/VirtualThreadBenchmark.java [gatewayUrl] [orders] [inFlight] [stubLatencyMs]
+ *
+ * Virtual threads only raise throughput while platform threads are what runs out: with 200 Tomcat threads
+ * and three sequential stub calls, the platform run tops out near 200 / (3 x stubLatency) orders/s. Below
+ * that the gateway's CPU is the limit in both runs.
+ */
+public class VirtualThreadBenchmark {
+
+    private static final int ORDER_PORT = 18082;
+    private static final int SHIPPING_PORT = 18083;
+    private static final int PAYMENT_PORT = 18084;
+
+    private static final Pattern SUCCESS = Pattern.compile("\"success\":(true|false)");
+    private static final Pattern ERROR_DETAILS = Pattern.compile("\"errorDetails\":\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern VIRTUAL_THREADS = Pattern.compile("\"virtualThreads\":(true|false)");
+    private static final Pattern PINNED_EVENTS = Pattern.compile("\"pinnedEvents\":(\\d+)");
+
+    private static final String ORDER = "{\"customerName\":\"bench\",\"customerEmail\":\"bench@example.com\","
+            + "\"shippingAddress\":\"1 Bench Street\",\"paymentMethod\":\"CREDIT_CARD\",\"paymentProvider\":\"FINA\","
+            + "\"cardLastFourDigits\":\"4242\",\"carrier\":\"GLS\",\"orderItems\":[{\"productId\":1,\"quantity\":1}]}";
+
+    public static void main(String[] args) throws Exception {
+        String gatewayUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int orders = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int inFlight = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+        int stubLatencyMs = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+
+        List<HttpServer> servers = new Stubs(stubLatencyMs).start();
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+
+        String threading = get(http, gatewayUrl + "/api/gateway/threading");
+        System.out.printf("gateway virtual threads: %s%n", find(VIRTUAL_THREADS, threading, "unknown"));
+
+        // warm-up, not measured
+        run(http, gatewayUrl, Math.min(orders, 2_000), Math.min(inFlight, 200));
+
+        Result result = run(http, gatewayUrl, orders, inFlight);
+
+        threading = get(http, gatewayUrl + "/api/gateway/threading");
+        servers.forEach(server -> server.stop(0));
+
+        long[] latencies = result.latencies();
+        Arrays.sort(latencies);
+        System.out.printf("%d orders, %d in flight, stub latency %d ms%n", orders, inFlight, stubLatencyMs);
+        System.out.printf("throughput %.0f orders/s over %.1f s%n", orders / result.seconds(), result.seconds());
+        System.out.printf("latency p50 %d ms, p90 %d ms, p99 %d ms, max %d ms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                latencies[latencies.length - 1]);
+        System.out.printf("succeeded %d, failed %d%n", result.succeeded(), orders - result.succeeded());
+        result.failures().forEach((message, count) -> System.out.printf("  %5d x %s%n", count, message));
+        System.out.printf("pinned virtual threads reported by the gateway: %s%n", find(PINNED_EVENTS, threading, "not watched"));
+    }
+
+    private static Result run(HttpClient http, String gatewayUrl, int orders, int inFlight) throws Exception {
+        long[] latencies = new long[orders];
+        AtomicLong succeeded = new AtomicLong();
+        Map<String, Integer> failures = new ConcurrentHashMap<>();
+        Semaphore slots = new Semaphore(inFlight);
+
+        long start = System.nanoTime();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < orders; i++) {
+                int order = i;
+                slots.acquire();
+                callers.submit(() -> {
+                    long sent = System.nanoTime();
+                    try {
+                        String failure = placeOrder(http, gatewayUrl);
+                        if (failure == null) {
+                            succeeded.incrementAndGet();
+                        } else {
+                            failures.merge(failure, 1, Integer::sum);
+                        }
+                    } finally {
+                        latencies[order] = (System.nanoTime() - sent) / 1_000_000;
+                        slots.release();
+                    }
+                });
+            }
+        }
+        return new Result((System.nanoTime() - start) / 1e9, latencies, succeeded.get(), new TreeMap<>(failures));
+    }
+
+    // Returns null for a placed order, otherwise what went wrong with digits folded so failures group
+    private static String placeOrder(HttpClient http, String gatewayUrl) {
+        try {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(gatewayUrl + "/api/gateway/place-order-saga"))
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofMinutes(5))
+                    .POST(HttpRequest.BodyPublishers.ofString(ORDER))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (find(SUCCESS, response.body(), "false").equals("true")) {
+                return null;
+            }
+            return (response.statusCode() + " " + find(ERROR_DETAILS, response.body(), "")).replaceAll("\\d+", "N");
+        } catch (Exception e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    private static String get(HttpClient http, String url) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private static String find(Pattern pattern, String text, String otherwise) {
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? matcher.group(1) : otherwise;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))];
+    }
+
+    private record Result(double seconds, long[] latencies, long succeeded, Map<String, Integer> failures) {
+    }
+
+    // Order, payment and shipping stand-ins that accept everything
+    private static class Stubs {
+
+        private final int latencyMs;
+        private final AtomicLong ids = new AtomicLong(1);
+
+        Stubs(int latencyMs) {
+            this.latencyMs = latencyMs;
+        }
+
+        List<HttpServer> start() throws IOException {
+            // headers and body go out as separate writes; without this each response waits out a delayed ACK
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+            // past the default 200 idle connections the server closes them, and the gateway's pool reuses them
+            System.setProperty("sun.net.httpserver.maxIdleConnections", "10000");
+            List<HttpServer> servers = new ArrayList<>();
+            servers.add(server(ORDER_PORT, "{\"id\":%d,\"status\":\"CONFIRMED\",\"totalAmount\":10.00}"));
+            servers.add(server(PAYMENT_PORT, "{\"id\":%d,\"status\":\"COMPLETED\",\"transactionId\":\"tx-%1$d\"}"));
+            servers.add(server(SHIPPING_PORT, "{\"id\":%d,\"status\":\"PENDING\",\"trackingNumber\":\"TRK-%1$d\"}"));
+            return servers;
+        }
+
+        private HttpServer server(int port, String created) throws IOException {
+            HttpServer server = HttpServer.create(new InetSocketAddress(port), 10_000);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.createContext("/", exchange -> {
+                try (exchange) {
+                    exchange.getRequestBody().readAllBytes();
+                    Thread.sleep(latencyMs);
+                    String method = exchange.getRequestMethod();
+                    if (method.equals("POST") && exchange.getRequestURI().getPath().matches("/api/\\w+")) {
+                        respond(exchange, 201, created.formatted(ids.getAndIncrement()));
+                    } else if (method.equals("GET")) {
+                        // status polls by the in-doubt resolver and saga recovery
+                        respond(exchange, 200, "[]");
+                    } else {
+                        respond(exchange, 200, "{}");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            server.start();
+            return server;
+        }
+
+        private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package hr.fer.ecommerce.gateway.client;
+
+import hr.fer.ecommerce.gateway.config.ConcurrencyLimitsConfig;
+import hr.fer.ecommerce.gateway.dto.ConcurrencyLimitResponse;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Bulkhead whose size follows observed round-trip times (AIMD, like TCP congestion control).
+// Two moving averages of the RTT are kept, as in Netflix's Gradient2 limiter: a short one for the current
+// latency and a long one as the baseline. The limit grows by one per limit-full of calls and shrinks by
+// backoffRatio, at most once per round trip, while the short average exceeds rttTolerance x the baseline
+// or a call fails with an I/O error.
+// A lock and condition are used instead of synchronized so waiting virtual threads are not pinned.
+class AdaptiveConcurrencyLimit {
+
+    private final String name;
+    private final ConcurrencyLimitsConfig config;
+    private final int maxLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotReleased = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private long accepted;
+    private long rejected;
+
+    private double shortRttNanos;
+    private double longRttNanos;
+    private long lastBackoffNanos;
+
+    AdaptiveConcurrencyLimit(String name, ConcurrencyLimitsConfig config, int maxLimit) {
+        this.name = name;
+        this.config = config;
+        this.maxLimit = Math.max(config.getMinLimit(), maxLimit);
+        int initialLimit = config.getInitialLimit() > 0 ? config.getInitialLimit() : this.maxLimit;
+        this.limit = Math.clamp(initialLimit, config.getMinLimit(), this.maxLimit);
+    }
+
+    <T> T call(Supplier<T> call) {
+        acquire();
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            return call.get();
+        } catch (ResourceAccessException e) {
+            // timeouts and refused connections are the overload signal RTT alone cannot show
+            failed = true;
+            throw e;
+        } finally {
+            release(System.nanoTime() - start, failed);
+        }
+    }
+
+    ConcurrencyLimitResponse stats() {
+        lock.lock();
+        try {
+            return ConcurrencyLimitResponse.builder()
+                    .service(name)
+                    .limit((int) limit)
+                    .maxLimit(maxLimit)
+                    .inFlight(inFlight)
+                    .queued(queued)
+                    .shortRttMs(shortRttNanos / 1_000_000.0)
+                    .longRttMs(longRttNanos / 1_000_000.0)
+                    .accepted(accepted)
+                    .rejected(rejected)
+                    .build();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquire() {
+        lock.lock();
+        try {
+            long remaining = config.getQueueTimeout().toNanos();
+            queued++;
+            try {
+                while (inFlight >= (int) limit) {
+                    if (remaining <= 0) {
+                        rejected++;
+                        throw new ConcurrencyLimitExceededException("Concurrency limit of " + (int) limit
+                                + " reached for " + name + " service");
+                    }
+                    remaining = slotReleased.awaitNanos(remaining);
+                }
+            } finally {
+                queued--;
+            }
+            inFlight++;
+            accepted++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyLimitExceededException("Interrupted while waiting for a " + name + " call slot");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long rttNanos, boolean failed) {
+        lock.lock();
+        try {
+            // only grow while the limit is actually being used, otherwise it drifts up without evidence
+            boolean saturated = inFlight * 2 >= (int) limit;
+            inFlight--;
+
+            if (!failed) {
+                updateRtt(rttNanos);
+            }
+
+            boolean congested = shortRttNanos > longRttNanos * config.getRttTolerance();
+            if (failed || congested) {
+                // back off at most once per round trip, otherwise one slow burst drives the limit straight to the minimum
+                long now = System.nanoTime();
+                if (now - lastBackoffNanos >= shortRttNanos) {
+                    limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+                    lastBackoffNanos = now;
+                }
+            } else if (saturated) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+
+            slotReleased.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateRtt(long rttNanos) {
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+
+        shortRttNanos += (rttNanos - shortRttNanos) / config.getShortRttWindow();
+        // the baseline follows a slower service only gradually, but drops straight back once latency recovers
+        longRttNanos = shortRttNanos < longRttNanos
+                ? shortRttNanos
+                : longRttNanos + (rttNanos - longRttNanos) / config.getLongRttWindow();
+    }
+}
@@ -0,0 +1,105 @@
+package hr.fer.ecommerce.gateway.client;
+
+import hr.fer.ecommerce.gateway.config.CircuitBreakersConfig;
+import hr.fer.ecommerce.gateway.config.ServicesConfig;
+import hr.fer.ecommerce.gateway.dto.CircuitBreakerStateResponse;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// One circuit breaker per downstream service and operation class. While a breaker is open,
+// calls fail immediately with CallNotPermittedException instead of holding a pooled connection.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CircuitBreakers {
+
+    private final ServicesConfig servicesConfig;
+    private final CircuitBreakersConfig circuitBreakersConfig;
+
+    private final Map<Downstream, Map<OperationClass, CircuitBreaker>> breakers = new EnumMap<>(Downstream.class);
+
+    @PostConstruct
+    void createBreakers() {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(circuitBreakersConfig.getFailureRateThreshold())
+                .slowCallRateThreshold(circuitBreakersConfig.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(circuitBreakersConfig.getSlowCallDuration())
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(circuitBreakersConfig.getSlidingWindowSize())
+                .minimumNumberOfCalls(circuitBreakersConfig.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(circuitBreakersConfig.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(circuitBreakersConfig.getPermittedCallsInHalfOpenState())
+                // 4xx means the service answered and rejected the request, a full bulkhead means the call was
+                // never sent, and a call cut short by the order's deadline failed on the caller's budget;
+                // none of them says anything about the service's health
+                .ignoreExceptions(HttpClientErrorException.class, ConcurrencyLimitExceededException.class,
+                        DeadlineExceededException.class)
+                // rejected calls are expected while open, so skip filling in their stack traces
+                .writableStackTraceEnabled(false)
+                .build());
+
+        for (Downstream downstream : Downstream.values()) {
+            if (downstream.config(servicesConfig) == null) {
+                continue;
+            }
+
+            Map<OperationClass, CircuitBreaker> byOperation = new EnumMap<>(OperationClass.class);
+            for (OperationClass operation : OperationClass.values()) {
+                CircuitBreaker breaker = registry.circuitBreaker(name(downstream, operation));
+                // OPEN to HALF_OPEN is published from inside a synchronized method of the breaker, where a virtual
+                // thread waiting for the log appender would pin its carrier, so the line is written from its own thread
+                breaker.getEventPublisher().onStateTransition(event -> Thread.startVirtualThread(() ->
+                        log.warn("Circuit breaker {}: {}", event.getCircuitBreakerName(), event.getStateTransition())));
+                byOperation.put(operation, breaker);
+            }
+            breakers.put(downstream, byOperation);
+        }
+    }
+
+    public <T> T call(Downstream downstream, OperationClass operation, Supplier<T> call) {
+        return breaker(downstream, operation).executeSupplier(call);
+    }
+
+    public List<CircuitBreakerStateResponse> states() {
+        List<CircuitBreakerStateResponse> states = new ArrayList<>();
+        breakers.forEach((downstream, byOperation) -> byOperation.forEach((operation, breaker) -> {
+            CircuitBreaker.Metrics metrics = breaker.getMetrics();
+            states.add(CircuitBreakerStateResponse.builder()
+                    .service(downstream.name())
+                    .operation(operation.name())
+                    .state(breaker.getState().name())
+                    .failureRate(metrics.getFailureRate())
+                    .slowCallRate(metrics.getSlowCallRate())
+                    .bufferedCalls(metrics.getNumberOfBufferedCalls())
+                    .failedCalls(metrics.getNumberOfFailedCalls())
+                    .slowCalls(metrics.getNumberOfSlowCalls())
+                    .notPermittedCalls(metrics.getNumberOfNotPermittedCalls())
+                    .build());
+        }));
+        return states;
+    }
+
+    private CircuitBreaker breaker(Downstream downstream, OperationClass operation) {
+        Map<OperationClass, CircuitBreaker> byOperation = breakers.get(downstream);
+        if (byOperation == null) {
+            throw new IllegalStateException("No circuit breakers configured for " + downstream);
+        }
+        return byOperation.get(operation);
+    }
+
+    private static String name(Downstream downstream, OperationClass operation) {
+        return downstream.name().toLowerCase() + "-" + operation.name().toLowerCase();
+    }
+}
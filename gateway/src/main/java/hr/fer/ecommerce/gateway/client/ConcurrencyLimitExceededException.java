@@ -0,0 +1,7 @@
+package hr.fer.ecommerce.gateway.client;
+
+public class ConcurrencyLimitExceededException extends RuntimeException {
+    public ConcurrencyLimitExceededException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,58 @@
+package hr.fer.ecommerce.gateway.client;
+
+import hr.fer.ecommerce.gateway.config.ConcurrencyLimitsConfig;
+import hr.fer.ecommerce.gateway.config.ServicesConfig;
+import hr.fer.ecommerce.gateway.dto.ConcurrencyLimitResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// One adaptive bulkhead per downstream service, so a slow service only backs up its own callers.
+// Only new work is shed: decided commits and aborts and compensations have to be delivered, so they
+// bypass the limit and are bounded by the connection pool alone.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConcurrencyLimits {
+
+    private final ServicesConfig servicesConfig;
+    private final ConcurrencyLimitsConfig concurrencyLimitsConfig;
+
+    private final Map<Downstream, AdaptiveConcurrencyLimit> limits = new EnumMap<>(Downstream.class);
+
+    @PostConstruct
+    void createLimits() {
+        for (Downstream downstream : Downstream.values()) {
+            ServicesConfig.ServiceConfig serviceConfig = downstream.config(servicesConfig);
+            if (serviceConfig == null) {
+                continue;
+            }
+            limits.put(downstream, new AdaptiveConcurrencyLimit(downstream.name(), concurrencyLimitsConfig,
+                    serviceConfig.getPool().getMaxConnections()));
+        }
+    }
+
+    public <T> T call(Downstream downstream, OperationClass operation, Supplier<T> call) {
+        if (!concurrencyLimitsConfig.isEnabled()
+                || operation == OperationClass.DECISION || operation == OperationClass.COMPENSATION) {
+            return call.get();
+        }
+        AdaptiveConcurrencyLimit limit = limits.get(downstream);
+        if (limit == null) {
+            throw new IllegalStateException("No concurrency limit configured for " + downstream);
+        }
+        return limit.call(call);
+    }
+
+    public List<ConcurrencyLimitResponse> stats() {
+        return limits.values().stream()
+                .map(AdaptiveConcurrencyLimit::stats)
+                .toList();
+    }
+}
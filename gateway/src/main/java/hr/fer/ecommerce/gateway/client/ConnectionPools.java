@@ -0,0 +1,146 @@
+package hr.fer.ecommerce.gateway.client;
+
+import hr.fer.ecommerce.gateway.config.DeadlineConfig;
+import hr.fer.ecommerce.gateway.config.ServicesConfig;
+import hr.fer.ecommerce.gateway.dto.PoolStatsResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// One keep-alive connection pool per downstream service, so a slow service cannot exhaust connections to the others
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConnectionPools {
+
+    private final ServicesConfig servicesConfig;
+    private final DeadlineConfig deadlineConfig;
+    private final TracingInterceptor tracingInterceptor;
+    private final RestTemplateBuilder restTemplateBuilder;
+
+    private final Map<Downstream, Pool> pools = new EnumMap<>(Downstream.class);
+
+    @PostConstruct
+    void createPools() {
+        for (Downstream downstream : Downstream.values()) {
+            ServicesConfig.ServiceConfig serviceConfig = downstream.config(servicesConfig);
+            if (serviceConfig == null) {
+                continue;
+            }
+            pools.put(downstream, createPool(serviceConfig.getPool()));
+            log.info("Created connection pool for {} with max {} connections",
+                    downstream, serviceConfig.getPool().getMaxConnections());
+        }
+    }
+
+    @PreDestroy
+    void closePools() {
+        pools.values().forEach(pool -> pool.httpClient().close(CloseMode.GRACEFUL));
+    }
+
+    public RestTemplate restTemplate(Downstream downstream) {
+        Pool pool = pools.get(downstream);
+        if (pool == null) {
+            throw new IllegalStateException("No connection pool configured for " + downstream);
+        }
+        return pool.restTemplate();
+    }
+
+    public List<PoolStatsResponse> stats() {
+        return Arrays.stream(Downstream.values())
+                .filter(pools::containsKey)
+                .map(downstream -> {
+                    PoolStats stats = pools.get(downstream).connectionManager().getTotalStats();
+                    return PoolStatsResponse.builder()
+                            .service(downstream.name())
+                            .leased(stats.getLeased())
+                            .pending(stats.getPending())
+                            .available(stats.getAvailable())
+                            .max(stats.getMax())
+                            .build();
+                })
+                .toList();
+    }
+
+    private Pool createPool(ServicesConfig.PoolConfig config) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(config.getMaxConnections())
+                .setMaxConnPerRoute(config.getMaxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(config.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(config.getReadTimeout()))
+                        .build())
+                .build();
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> TimeValue.of(config.getKeepAlive()))
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(config.getConnectionRequestTimeout()))
+                        .setResponseTimeout(Timeout.of(config.getResponseTimeout()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(config.getIdleEviction()))
+                .build();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setHttpContextFactory((method, uri) -> deadlineContext(config));
+
+        RestTemplate restTemplate = restTemplateBuilder
+                .requestFactory(() -> requestFactory)
+                .additionalInterceptors(tracingInterceptor, (request, body, execution) -> {
+                    Long deadline = RequestDeadline.current();
+                    if (deadline != null) {
+                        request.getHeaders().set(RequestDeadline.HEADER, String.valueOf(deadline));
+                    }
+                    return execution.execute(request, body);
+                })
+                .build();
+
+        return new Pool(connectionManager, httpClient, restTemplate);
+    }
+
+    // Waiting for a pooled connection never runs past the order's deadline, and waiting for the response
+    // only by the grace it takes the service to answer that the deadline passed
+    private HttpContext deadlineContext(ServicesConfig.PoolConfig config) {
+        Long remaining = RequestDeadline.remainingMillis();
+        if (remaining == null) {
+            return null;
+        }
+        long timeout = Math.max(1, remaining);
+        long responseTimeout = timeout + deadlineConfig.getResponseGrace().toMillis();
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(Math.min(timeout, config.getConnectionRequestTimeout().toMillis())))
+                .setResponseTimeout(Timeout.ofMilliseconds(Math.min(responseTimeout, config.getResponseTimeout().toMillis())))
+                .build());
+        return context;
+    }
+
+    private record Pool(PoolingHttpClientConnectionManager connectionManager,
+                        CloseableHttpClient httpClient,
+                        RestTemplate restTemplate) {
+    }
+}
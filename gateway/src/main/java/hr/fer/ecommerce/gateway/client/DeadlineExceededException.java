@@ -0,0 +1,7 @@
+package hr.fer.ecommerce.gateway.client;
+
+public class DeadlineExceededException extends RuntimeException {
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,19 @@
+package hr.fer.ecommerce.gateway.client;
+
+import hr.fer.ecommerce.gateway.config.ServicesConfig;
+
+public enum Downstream {
+    PRODUCT,
+    ORDER,
+    PAYMENT,
+    SHIPPING;
+
+    public ServicesConfig.ServiceConfig config(ServicesConfig servicesConfig) {
+        return switch (this) {
+            case PRODUCT -> servicesConfig.getProduct();
+            case ORDER -> servicesConfig.getOrder();
+            case PAYMENT -> servicesConfig.getPayment();
+            case SHIPPING -> servicesConfig.getShipping();
+        };
+    }
+}
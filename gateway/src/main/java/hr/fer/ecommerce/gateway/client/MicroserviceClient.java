@@ -1,25 +1,39 @@
 package hr.fer.ecommerce.gateway.client;
 
 import hr.fer.ecommerce.gateway.client.order.CreateOrderRequest;
+import hr.fer.ecommerce.gateway.client.order.OrderIdBlock;
+import hr.fer.ecommerce.gateway.client.order.OrderPageResponse;
 import hr.fer.ecommerce.gateway.client.order.OrderResponse;
 import hr.fer.ecommerce.gateway.client.payment.CreatePaymentRequest;
 import hr.fer.ecommerce.gateway.client.payment.PaymentResponse;
+import hr.fer.ecommerce.gateway.client.product.ProductResponse;
+import hr.fer.ecommerce.gateway.client.product.StockValidationRequest;
 import hr.fer.ecommerce.gateway.client.shipment.CreateShipmentRequest;
 import hr.fer.ecommerce.gateway.client.shipment.ShipmentResponse;
 import hr.fer.ecommerce.gateway.config.ServicesConfig;
+import hr.fer.ecommerce.gateway.dto.SpanResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MicroserviceClient {
 
-    private final RestTemplate restTemplate;
+    private final ConnectionPools connectionPools;
+    private final CircuitBreakers circuitBreakers;
+    private final ConcurrencyLimits concurrencyLimits;
     private final ServicesConfig servicesConfig;
 
     public OrderResponse createOrder(CreateOrderRequest request) {
@@ -27,7 +41,7 @@ public class MicroserviceClient {
         log.info("Creating order at: {}", url);
 
         try {
-            OrderResponse response = restTemplate.postForObject(url, request, OrderResponse.class);
+            OrderResponse response = call(Downstream.ORDER, OperationClass.CREATE, restTemplate -> restTemplate.postForObject(url, request, OrderResponse.class));
             log.info("Order created successfully with ID: {}", response != null ? response.getId() : "null");
             return response;
         } catch (Exception e) {
@@ -41,7 +55,7 @@ public class MicroserviceClient {
         log.info("Creating payment at: {}", url);
 
         try {
-            PaymentResponse response = restTemplate.postForObject(url, request, PaymentResponse.class);
+            PaymentResponse response = call(Downstream.PAYMENT, OperationClass.CREATE, restTemplate -> restTemplate.postForObject(url, request, PaymentResponse.class));
             log.info("Payment created successfully with ID: {}", response != null ? response.getId() : "null");
             return response;
         } catch (Exception e) {
@@ -55,7 +69,7 @@ public class MicroserviceClient {
         log.info("Creating shipment at: {}", url);
 
         try {
-            ShipmentResponse response = restTemplate.postForObject(url, request, ShipmentResponse.class);
+            ShipmentResponse response = call(Downstream.SHIPPING, OperationClass.CREATE, restTemplate -> restTemplate.postForObject(url, request, ShipmentResponse.class));
             log.info("Shipment created successfully with ID: {}", response != null ? response.getId() : "null");
             return response;
         } catch (Exception e) {
@@ -70,9 +84,13 @@ public class MicroserviceClient {
 
         log.warn("Compensating order: cancelling order ID {}", orderId);
         try {
-            restTemplate.delete(url);
+            call(Downstream.ORDER, OperationClass.COMPENSATION, restTemplate -> {
+                restTemplate.delete(url);
+                return null;
+            });
         } catch (Exception e) {
             log.error("Failed to cancel order {}", orderId, e);
+            throw new RuntimeException("Failed to cancel order: " + e.getMessage(), e);
         }
     }
 
@@ -82,9 +100,10 @@ public class MicroserviceClient {
 
         log.warn("Compensating payment: refunding payment ID {}", paymentId);
         try {
-            restTemplate.postForLocation(url, null);
+            call(Downstream.PAYMENT, OperationClass.COMPENSATION, restTemplate -> restTemplate.postForLocation(url, null));
         } catch (Exception e) {
             log.error("Failed to refund payment {}", paymentId, e);
+            throw new RuntimeException("Failed to refund payment: " + e.getMessage(), e);
         }
     }
 
@@ -94,20 +113,103 @@ public class MicroserviceClient {
 
         log.warn("Compensating shipment: cancelling shipment ID {}", shipmentId);
         try {
-            restTemplate.put(url, null);
+            call(Downstream.SHIPPING, OperationClass.COMPENSATION, restTemplate -> {
+                restTemplate.put(url, null);
+                return null;
+            });
         } catch (Exception e) {
             log.error("Failed to cancel shipment {}", shipmentId, e);
+            throw new RuntimeException("Failed to cancel shipment: " + e.getMessage(), e);
         }
     }
 
 
+    // Readiness checks without side effects; a 4xx answer other than 429 means the order would be rejected
+    public void validateStock(StockValidationRequest request) {
+        String url = servicesConfig.getProduct().getUrl() + "/api/products/stock/validate";
+        try {
+            call(Downstream.PRODUCT, OperationClass.VALIDATION, restTemplate -> restTemplate.postForObject(url, request, Void.class));
+        } catch (Exception e) {
+            throw new RuntimeException("Stock validation failed: " + e.getMessage(), e);
+        }
+    }
+
+    public void validatePayment(CreatePaymentRequest request) {
+        String url = servicesConfig.getPayment().getUrl() + "/api/payments/validate";
+        try {
+            call(Downstream.PAYMENT, OperationClass.VALIDATION, restTemplate -> restTemplate.postForObject(url, request, Void.class));
+        } catch (Exception e) {
+            throw new RuntimeException("Payment validation failed: " + e.getMessage(), e);
+        }
+    }
+
+    public void validateShipment(CreateShipmentRequest request) {
+        String url = servicesConfig.getShipping().getUrl() + "/api/shipments/validate";
+        try {
+            call(Downstream.SHIPPING, OperationClass.VALIDATION, restTemplate -> restTemplate.postForObject(url, request, Void.class));
+        } catch (Exception e) {
+            throw new RuntimeException("Shipment validation failed: " + e.getMessage(), e);
+        }
+    }
+
+    // Lookups used by saga recovery to find resources whose creation was not yet recorded in the saga log
+    public Optional<PaymentResponse> findPaymentByOrderId(Long orderId) {
+        String url = servicesConfig.getPayment().getUrl() + "/api/payments/order/" + orderId;
+        try {
+            return Optional.ofNullable(call(Downstream.PAYMENT, OperationClass.COMPENSATION, restTemplate -> restTemplate.getForObject(url, PaymentResponse.class)));
+        } catch (HttpClientErrorException.NotFound e) {
+            return Optional.empty();
+        }
+    }
+
+    public Optional<ShipmentResponse> findShipmentByOrderId(Long orderId) {
+        String url = servicesConfig.getShipping().getUrl() + "/api/shipments/order/" + orderId;
+        try {
+            return Optional.ofNullable(call(Downstream.SHIPPING, OperationClass.COMPENSATION, restTemplate -> restTemplate.getForObject(url, ShipmentResponse.class)));
+        } catch (HttpClientErrorException.NotFound e) {
+            return Optional.empty();
+        }
+    }
+
+    public List<OrderResponse> findOrdersByCustomer(String customerEmail) {
+        String url = servicesConfig.getOrder().getUrl() + "/api/orders/customer/{email}?size=100&sort=createdAt,desc";
+        OrderPageResponse page = call(Downstream.ORDER, OperationClass.COMPENSATION, restTemplate -> restTemplate.getForObject(url, OrderPageResponse.class, customerEmail));
+        return page != null && page.getContent() != null ? page.getContent() : List.of();
+    }
+
     // ===== 2PC Methods =====
+    public OrderIdBlock allocateOrderIds() {
+        String url = servicesConfig.getOrder().getUrl() + "/api/orders/id-blocks";
+        log.info("2PC: Allocating order ID block at: {}", url);
+
+        try {
+            return call(Downstream.ORDER, OperationClass.CREATE, restTemplate -> restTemplate.postForObject(url, null, OrderIdBlock.class));
+        } catch (Exception e) {
+            log.error("2PC: Failed to allocate order IDs: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to allocate order IDs: " + e.getMessage(), e);
+        }
+    }
+
+    public List<ProductResponse> getProducts(Collection<Long> productIds) {
+        String url = UriComponentsBuilder.fromUriString(servicesConfig.getProduct().getUrl() + "/api/products/batch")
+                .queryParam("ids", productIds)
+                .toUriString();
+
+        try {
+            ProductResponse[] products = call(Downstream.PRODUCT, OperationClass.CREATE, restTemplate -> restTemplate.getForObject(url, ProductResponse[].class));
+            return products != null ? List.of(products) : List.of();
+        } catch (Exception e) {
+            log.error("Failed to fetch products {}: {}", productIds, e.getMessage(), e);
+            throw new RuntimeException("Failed to fetch products: " + e.getMessage(), e);
+        }
+    }
+
     public OrderResponse prepareOrder(CreateOrderRequest request) {
         String url = servicesConfig.getOrder().getUrl() + "/api/orders/prepare";
         log.info("2PC: Preparing order at: {}", url);
 
         try {
-            OrderResponse response = restTemplate.postForObject(url, request, OrderResponse.class);
+            OrderResponse response = call(Downstream.ORDER, OperationClass.CREATE, restTemplate -> restTemplate.postForObject(url, request, OrderResponse.class));
             log.info("2PC: Order prepared with ID: {}", response != null ? response.getId() : "null");
             return response;
         } catch (Exception e) {
@@ -121,7 +223,7 @@ public class MicroserviceClient {
         log.info("2PC: Committing order at: {}", url);
 
         try {
-            OrderResponse response = restTemplate.postForObject(url, null, OrderResponse.class);
+            OrderResponse response = call(Downstream.ORDER, OperationClass.DECISION, restTemplate -> restTemplate.postForObject(url, null, OrderResponse.class));
             log.info("2PC: Order committed - ID: {}", orderId);
             return response;
         } catch (Exception e) {
@@ -135,10 +237,11 @@ public class MicroserviceClient {
         log.info("2PC: Aborting order at: {}", url);
 
         try {
-            restTemplate.postForObject(url, null, Void.class);
+            call(Downstream.ORDER, OperationClass.DECISION, restTemplate -> restTemplate.postForObject(url, null, Void.class));
             log.info("2PC: Order aborted - ID: {}", orderId);
         } catch (Exception e) {
             log.error("2PC: Failed to abort order {}: {}", orderId, e.getMessage(), e);
+            throw new RuntimeException("Failed to abort order: " + e.getMessage(), e);
         }
     }
 
@@ -147,7 +250,7 @@ public class MicroserviceClient {
         log.info("2PC: Preparing payment at: {}", url);
 
         try {
-            PaymentResponse response = restTemplate.postForObject(url, request, PaymentResponse.class);
+            PaymentResponse response = call(Downstream.PAYMENT, OperationClass.CREATE, restTemplate -> restTemplate.postForObject(url, request, PaymentResponse.class));
             log.info("2PC: Payment prepared with ID: {}", response != null ? response.getId() : "null");
             return response;
         } catch (Exception e) {
@@ -161,7 +264,7 @@ public class MicroserviceClient {
         log.info("2PC: Committing payment at: {}", url);
 
         try {
-            PaymentResponse response = restTemplate.postForObject(url, null, PaymentResponse.class);
+            PaymentResponse response = call(Downstream.PAYMENT, OperationClass.DECISION, restTemplate -> restTemplate.postForObject(url, null, PaymentResponse.class));
             log.info("2PC: Payment committed - ID: {}", paymentId);
             return response;
         } catch (Exception e) {
@@ -175,10 +278,11 @@ public class MicroserviceClient {
         log.info("2PC: Aborting payment at: {}", url);
 
         try {
-            restTemplate.postForObject(url, null, Void.class);
+            call(Downstream.PAYMENT, OperationClass.DECISION, restTemplate -> restTemplate.postForObject(url, null, Void.class));
             log.info("2PC: Payment aborted - ID: {}", paymentId);
         } catch (Exception e) {
             log.error("2PC: Failed to abort payment {}: {}", paymentId, e.getMessage(), e);
+            throw new RuntimeException("Failed to abort payment: " + e.getMessage(), e);
         }
     }
 
@@ -187,7 +291,7 @@ public class MicroserviceClient {
         log.info("2PC: Preparing shipment at: {}", url);
 
         try {
-            ShipmentResponse response = restTemplate.postForObject(url, request, ShipmentResponse.class);
+            ShipmentResponse response = call(Downstream.SHIPPING, OperationClass.CREATE, restTemplate -> restTemplate.postForObject(url, request, ShipmentResponse.class));
             log.info("2PC: Shipment prepared with ID: {}", response != null ? response.getId() : "null");
             return response;
         } catch (Exception e) {
@@ -201,7 +305,7 @@ public class MicroserviceClient {
         log.info("2PC: Committing shipment at: {}", url);
 
         try {
-            ShipmentResponse response = restTemplate.postForObject(url, null, ShipmentResponse.class);
+            ShipmentResponse response = call(Downstream.SHIPPING, OperationClass.DECISION, restTemplate -> restTemplate.postForObject(url, null, ShipmentResponse.class));
             log.info("2PC: Shipment committed - ID: {}", shipmentId);
             return response;
         } catch (Exception e) {
@@ -215,47 +319,103 @@ public class MicroserviceClient {
         log.info("2PC: Aborting shipment at: {}", url);
 
         try {
-            restTemplate.postForObject(url, null, Void.class);
+            call(Downstream.SHIPPING, OperationClass.DECISION, restTemplate -> restTemplate.postForObject(url, null, Void.class));
             log.info("2PC: Shipment aborted - ID: {}", shipmentId);
         } catch (Exception e) {
             log.error("2PC: Failed to abort shipment {}: {}", shipmentId, e.getMessage(), e);
+            throw new RuntimeException("Failed to abort shipment: " + e.getMessage(), e);
         }
     }
 
+    // Diagnostics read the span store directly, outside the circuit breakers and concurrency limits
+    public List<SpanResponse> getTrace(Downstream downstream, String traceId) {
+        String url = downstream.config(servicesConfig).getUrl() + "/api/traces/" + traceId;
+        SpanResponse[] spans = restTemplate(downstream).getForObject(url, SpanResponse[].class);
+        return spans != null ? List.of(spans) : List.of();
+    }
+
+    // Participants still holding a 2PC reservation, scanned by the in-doubt resolver
+    public List<OrderResponse> findOrdersByStatus(String status) {
+        String url = servicesConfig.getOrder().getUrl() + "/api/orders/status/" + status;
+        OrderResponse[] orders = call(Downstream.ORDER, OperationClass.DECISION, restTemplate -> restTemplate.getForObject(url, OrderResponse[].class));
+        return orders != null ? List.of(orders) : List.of();
+    }
+
+    public List<PaymentResponse> findPaymentsByStatus(String status) {
+        String url = servicesConfig.getPayment().getUrl() + "/api/payments/status/" + status;
+        PaymentResponse[] payments = call(Downstream.PAYMENT, OperationClass.DECISION, restTemplate -> restTemplate.getForObject(url, PaymentResponse[].class));
+        return payments != null ? List.of(payments) : List.of();
+    }
+
+    public List<ShipmentResponse> findShipmentsByStatus(String status) {
+        String url = servicesConfig.getShipping().getUrl() + "/api/shipments/status/" + status;
+        ShipmentResponse[] shipments = call(Downstream.SHIPPING, OperationClass.DECISION, restTemplate -> restTemplate.getForObject(url, ShipmentResponse[].class));
+        return shipments != null ? List.of(shipments) : List.of();
+    }
+
     public Map<String, Object> setFinaAvailability(boolean enabled) {
         String url = servicesConfig.getPayment().getUrl() + "/api/config/fina/availability/" + enabled;
         log.info("Setting FINA availability to: {}", enabled);
-        return restTemplate.postForObject(url, null, Map.class);
+        return restTemplate(Downstream.PAYMENT).postForObject(url, null, Map.class);
     }
 
     public Map<String, Object> setPreAuthorization(boolean enabled) {
         String url = servicesConfig.getPayment().getUrl() + "/api/config/fina/pre-authorization/" + enabled;
         log.info("Setting pre-authorization to: {}", enabled);
-        return restTemplate.postForObject(url, null, Map.class);
+        return restTemplate(Downstream.PAYMENT).postForObject(url, null, Map.class);
     }
 
     public Map<String, Object> getFinaStatus() {
         String url = servicesConfig.getPayment().getUrl() + "/api/config/fina/status";
         log.info("Getting FINA status");
-        return restTemplate.getForObject(url, Map.class);
+        return restTemplate(Downstream.PAYMENT).getForObject(url, Map.class);
     }
 
     public Map<String, Object> setCarrierAvailability(boolean enabled) {
         String url = servicesConfig.getShipping().getUrl() + "/api/config/carrier/availability/" + enabled;
         log.info("Setting carrier availability to: {}", enabled);
-        return restTemplate.postForObject(url, null, Map.class);
+        return restTemplate(Downstream.SHIPPING).postForObject(url, null, Map.class);
     }
 
     public Map<String, Object> setCarrierCapacity(boolean enabled) {
         String url = servicesConfig.getShipping().getUrl() + "/api/config/carrier/capacity/" + enabled;
         log.info("Setting carrier capacity to: {}", enabled);
-        return restTemplate.postForObject(url, null, Map.class);
+        return restTemplate(Downstream.SHIPPING).postForObject(url, null, Map.class);
     }
 
     public Map<String, Object> getCarrierStatus() {
         String url = servicesConfig.getShipping().getUrl() + "/api/config/carrier/status";
         log.info("Getting carrier status");
-        return restTemplate.getForObject(url, Map.class);
+        return restTemplate(Downstream.SHIPPING).getForObject(url, Map.class);
     }
-}
 
+    private RestTemplate restTemplate(Downstream downstream) {
+        return connectionPools.restTemplate(downstream);
+    }
+
+    // An open breaker rejects before a concurrency slot is taken; a full bulkhead is not counted as a breaker failure
+    // New work is bounded by the order's deadline. A commit or abort that was decided, and a compensation,
+    // must still be delivered after the client has given up, so they run without one.
+    private <T> T call(Downstream downstream, OperationClass operation, Function<RestTemplate, T> request) {
+        if (operation == OperationClass.DECISION || operation == OperationClass.COMPENSATION) {
+            return RequestDeadline.call(null, () -> execute(downstream, operation, request));
+        }
+        RequestDeadline.check();
+        return execute(downstream, operation, request);
+    }
+
+    private <T> T execute(Downstream downstream, OperationClass operation, Function<RestTemplate, T> request) {
+        return circuitBreakers.call(downstream, operation,
+                () -> concurrencyLimits.call(downstream, operation, () -> {
+                    try {
+                        return request.apply(restTemplate(downstream));
+                    } catch (RestClientException e) {
+                        // a timeout shortened to the deadline, or the service refusing expired work
+                        if (RequestDeadline.isExpired()) {
+                            throw new DeadlineExceededException("Request deadline exceeded calling " + downstream, e);
+                        }
+                        throw e;
+                    }
+                }));
+    }
+}
@@ -0,0 +1,10 @@
+package hr.fer.ecommerce.gateway.client;
+
+// Calls of one class share a circuit breaker per downstream, so failing compensations
+// cannot open the breaker that guards new orders and vice versa
+public enum OperationClass {
+    CREATE,         // saga create and 2PC prepare
+    DECISION,       // 2PC commit and abort
+    COMPENSATION,   // saga rollback calls
+    VALIDATION      // pre-flight readiness checks
+}
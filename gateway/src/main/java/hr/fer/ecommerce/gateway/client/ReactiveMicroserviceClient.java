@@ -0,0 +1,193 @@
+package hr.fer.ecommerce.gateway.client;
+
+import hr.fer.ecommerce.gateway.client.order.CreateOrderRequest;
+import hr.fer.ecommerce.gateway.client.order.OrderResponse;
+import hr.fer.ecommerce.gateway.client.payment.CreatePaymentRequest;
+import hr.fer.ecommerce.gateway.client.payment.PaymentResponse;
+import hr.fer.ecommerce.gateway.client.shipment.CreateShipmentRequest;
+import hr.fer.ecommerce.gateway.client.shipment.ShipmentResponse;
+import hr.fer.ecommerce.gateway.config.ServicesConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+// Non-blocking counterpart of MicroserviceClient; calls run on the WebClient event loop instead of a request thread
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveMicroserviceClient {
+
+    private final WebClient webClient;
+    private final ServicesConfig servicesConfig;
+
+    public Mono<OrderResponse> createOrder(CreateOrderRequest request) {
+        String url = servicesConfig.getOrder().getUrl() + "/api/orders";
+        log.info("Creating order at: {}", url);
+
+        return post(servicesConfig.getOrder(), url, request, OrderResponse.class)
+                .doOnNext(response -> log.info("Order created successfully with ID: {}", response.getId()))
+                .onErrorMap(e -> failure("Failed to create order", e));
+    }
+
+    public Mono<PaymentResponse> createPayment(CreatePaymentRequest request) {
+        String url = servicesConfig.getPayment().getUrl() + "/api/payments";
+        log.info("Creating payment at: {}", url);
+
+        return post(servicesConfig.getPayment(), url, request, PaymentResponse.class)
+                .doOnNext(response -> log.info("Payment created successfully with ID: {}", response.getId()))
+                .onErrorMap(e -> failure("Failed to create payment", e));
+    }
+
+    public Mono<ShipmentResponse> createShipment(CreateShipmentRequest request) {
+        String url = servicesConfig.getShipping().getUrl() + "/api/shipments";
+        log.info("Creating shipment at: {}", url);
+
+        return post(servicesConfig.getShipping(), url, request, ShipmentResponse.class)
+                .doOnNext(response -> log.info("Shipment created successfully with ID: {}", response.getId()))
+                .onErrorMap(e -> failure("Failed to create shipment", e));
+    }
+
+    public Mono<Void> cancelOrder(Long orderId) {
+        String url = servicesConfig.getOrder().getUrl()
+                + "/api/orders/" + orderId + "/cancel";
+
+        log.warn("Compensating order: cancelling order ID {}", orderId);
+        return withTimeout(servicesConfig.getOrder(), webClient.delete()
+                .uri(url)
+                .retrieve()
+                .bodyToMono(Void.class))
+                .onErrorResume(e -> {
+                    log.error("Failed to cancel order {}", orderId, e);
+                    return Mono.empty();
+                });
+    }
+
+    public Mono<Void> refundPayment(Long paymentId) {
+        String url = servicesConfig.getPayment().getUrl()
+                + "/api/payments/" + paymentId + "/refund";
+
+        log.warn("Compensating payment: refunding payment ID {}", paymentId);
+        return post(servicesConfig.getPayment(), url, null, Void.class)
+                .onErrorResume(e -> {
+                    log.error("Failed to refund payment {}", paymentId, e);
+                    return Mono.empty();
+                });
+    }
+
+    public Mono<Void> cancelShipment(Long shipmentId) {
+        String url = servicesConfig.getShipping().getUrl()
+                + "/api/shipments/" + shipmentId + "/cancel";
+
+        log.warn("Compensating shipment: cancelling shipment ID {}", shipmentId);
+        return withTimeout(servicesConfig.getShipping(), webClient.put()
+                .uri(url)
+                .retrieve()
+                .bodyToMono(Void.class))
+                .onErrorResume(e -> {
+                    log.error("Failed to cancel shipment {}", shipmentId, e);
+                    return Mono.empty();
+                });
+    }
+
+
+    // ===== 2PC Methods =====
+    public Mono<OrderResponse> prepareOrder(CreateOrderRequest request) {
+        String url = servicesConfig.getOrder().getUrl() + "/api/orders/prepare";
+        log.info("2PC: Preparing order at: {}", url);
+
+        return post(servicesConfig.getOrder(), url, request, OrderResponse.class)
+                .doOnNext(response -> log.info("2PC: Order prepared with ID: {}", response.getId()))
+                .onErrorMap(e -> failure("Failed to prepare order", e));
+    }
+
+    public Mono<OrderResponse> commitOrder(Long orderId) {
+        String url = servicesConfig.getOrder().getUrl() + "/api/orders/" + orderId + "/commit";
+        log.info("2PC: Committing order at: {}", url);
+
+        return post(servicesConfig.getOrder(), url, null, OrderResponse.class)
+                .doOnNext(response -> log.info("2PC: Order committed - ID: {}", orderId))
+                .onErrorMap(e -> failure("Failed to commit order", e));
+    }
+
+    public Mono<Void> abortOrder(Long orderId) {
+        String url = servicesConfig.getOrder().getUrl() + "/api/orders/" + orderId + "/abort";
+        log.info("2PC: Aborting order at: {}", url);
+
+        return post(servicesConfig.getOrder(), url, null, Void.class)
+                .doOnSuccess(ignored -> log.info("2PC: Order aborted - ID: {}", orderId))
+                .onErrorMap(e -> failure("Failed to abort order", e));
+    }
+
+    public Mono<PaymentResponse> preparePayment(CreatePaymentRequest request) {
+        String url = servicesConfig.getPayment().getUrl() + "/api/payments/prepare";
+        log.info("2PC: Preparing payment at: {}", url);
+
+        return post(servicesConfig.getPayment(), url, request, PaymentResponse.class)
+                .doOnNext(response -> log.info("2PC: Payment prepared with ID: {}", response.getId()))
+                .onErrorMap(e -> failure("Failed to prepare payment", e));
+    }
+
+    public Mono<PaymentResponse> commitPayment(Long paymentId) {
+        String url = servicesConfig.getPayment().getUrl() + "/api/payments/" + paymentId + "/commit";
+        log.info("2PC: Committing payment at: {}", url);
+
+        return post(servicesConfig.getPayment(), url, null, PaymentResponse.class)
+                .doOnNext(response -> log.info("2PC: Payment committed - ID: {}", paymentId))
+                .onErrorMap(e -> failure("Failed to commit payment", e));
+    }
+
+    public Mono<Void> abortPayment(Long paymentId) {
+        String url = servicesConfig.getPayment().getUrl() + "/api/payments/" + paymentId + "/abort";
+        log.info("2PC: Aborting payment at: {}", url);
+
+        return post(servicesConfig.getPayment(), url, null, Void.class)
+                .doOnSuccess(ignored -> log.info("2PC: Payment aborted - ID: {}", paymentId))
+                .onErrorMap(e -> failure("Failed to abort payment", e));
+    }
+
+    public Mono<ShipmentResponse> prepareShipment(CreateShipmentRequest request) {
+        String url = servicesConfig.getShipping().getUrl() + "/api/shipments/prepare";
+        log.info("2PC: Preparing shipment at: {}", url);
+
+        return post(servicesConfig.getShipping(), url, request, ShipmentResponse.class)
+                .doOnNext(response -> log.info("2PC: Shipment prepared with ID: {}", response.getId()))
+                .onErrorMap(e -> failure("Failed to prepare shipment", e));
+    }
+
+    public Mono<ShipmentResponse> commitShipment(Long shipmentId) {
+        String url = servicesConfig.getShipping().getUrl() + "/api/shipments/" + shipmentId + "/commit";
+        log.info("2PC: Committing shipment at: {}", url);
+
+        return post(servicesConfig.getShipping(), url, null, ShipmentResponse.class)
+                .doOnNext(response -> log.info("2PC: Shipment committed - ID: {}", shipmentId))
+                .onErrorMap(e -> failure("Failed to commit shipment", e));
+    }
+
+    public Mono<Void> abortShipment(Long shipmentId) {
+        String url = servicesConfig.getShipping().getUrl() + "/api/shipments/" + shipmentId + "/abort";
+        log.info("2PC: Aborting shipment at: {}", url);
+
+        return post(servicesConfig.getShipping(), url, null, Void.class)
+                .doOnSuccess(ignored -> log.info("2PC: Shipment aborted - ID: {}", shipmentId))
+                .onErrorMap(e -> failure("Failed to abort shipment", e));
+    }
+
+    private <T> Mono<T> post(ServicesConfig.ServiceConfig service, String url, Object body, Class<T> responseType) {
+        WebClient.RequestBodySpec spec = webClient.post().uri(url);
+        WebClient.RequestHeadersSpec<?> request = body != null ? spec.bodyValue(body) : spec;
+        return withTimeout(service, request.retrieve().bodyToMono(responseType));
+    }
+
+    // The blocking path's connect and response timeouts for the same service, so a hung service fails both alike
+    private <T> Mono<T> withTimeout(ServicesConfig.ServiceConfig service, Mono<T> call) {
+        ServicesConfig.PoolConfig pool = service.getPool();
+        return call.timeout(pool.getConnectTimeout().plus(pool.getResponseTimeout()));
+    }
+
+    private RuntimeException failure(String message, Throwable e) {
+        log.error("{}: {}", message, e.getMessage());
+        return new RuntimeException(message + ": " + e.getMessage(), e);
+    }
+}
@@ -0,0 +1,67 @@
+package hr.fer.ecommerce.gateway.client;
+
+import java.util.function.Supplier;
+
+// Deadline of the order being placed, as epoch milliseconds. Outbound calls carry it in a header and never
+// wait past it, and participant tasks inherit it from the thread that submitted them.
+public final class RequestDeadline {
+
+    public static final String HEADER = "X-Request-Deadline";
+
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    public static Long current() {
+        return CURRENT.get();
+    }
+
+    // Milliseconds left, or null when no deadline applies
+    public static Long remainingMillis() {
+        Long deadline = CURRENT.get();
+        return deadline != null ? deadline - System.currentTimeMillis() : null;
+    }
+
+    public static boolean isExpired() {
+        Long remaining = remainingMillis();
+        return remaining != null && remaining <= 0;
+    }
+
+    public static void check() {
+        if (isExpired()) {
+            throw new DeadlineExceededException("Request deadline exceeded by " + -remainingMillis() + " ms", null);
+        }
+    }
+
+    // Runs the call with the given deadline (none when null) and restores the previous one afterwards
+    public static <T> T call(Long deadline, Supplier<T> call) {
+        Long previous = CURRENT.get();
+        set(deadline);
+        try {
+            return call.get();
+        } finally {
+            set(previous);
+        }
+    }
+
+    // Binds the submitting thread's deadline to a task that runs on another thread
+    public static Runnable propagate(Runnable task) {
+        Long deadline = CURRENT.get();
+        if (deadline == null) {
+            return task;
+        }
+        return () -> call(deadline, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    private static void set(Long deadline) {
+        if (deadline != null) {
+            CURRENT.set(deadline);
+        } else {
+            CURRENT.remove();
+        }
+    }
+}
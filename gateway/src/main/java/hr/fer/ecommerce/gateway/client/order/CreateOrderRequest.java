@@ -12,6 +12,7 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 public class CreateOrderRequest {
+    private Long id;   // pre-allocated from an order ID block, or null to let the order service assign it
     private String customerName;
     private String customerEmail;
     private String shippingAddress;
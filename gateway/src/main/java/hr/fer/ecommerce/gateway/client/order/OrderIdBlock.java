@@ -0,0 +1,15 @@
+package hr.fer.ecommerce.gateway.client.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderIdBlock {
+    private Long firstId;
+    private int size;
+}
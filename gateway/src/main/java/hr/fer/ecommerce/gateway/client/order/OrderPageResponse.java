@@ -0,0 +1,15 @@
+package hr.fer.ecommerce.gateway.client.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Only the page content of the order service's Page<OrderDto> response is needed
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPageResponse {
+    private List<OrderResponse> content;
+}
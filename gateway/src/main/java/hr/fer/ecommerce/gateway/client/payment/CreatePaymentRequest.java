@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,5 +18,6 @@ public class CreatePaymentRequest {
     private String paymentMethod;
     private String paymentProvider;
     private String cardLastFourDigits;
+    private BigDecimal amount;   // only when the payment is prepared before the order exists
 }
 
@@ -0,0 +1,18 @@
+package hr.fer.ecommerce.gateway.client.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductResponse {
+    private Long id;
+    private String name;
+    private BigDecimal price;
+}
@@ -15,5 +15,10 @@ public class CreateShipmentRequest {
     private Long orderId;
     private String carrier;
     private LocalDateTime estimatedDeliveryDate;
+
+    // only when the shipment is prepared before the order exists
+    private String customerName;
+    private String customerEmail;
+    private String shippingAddress;
 }
 
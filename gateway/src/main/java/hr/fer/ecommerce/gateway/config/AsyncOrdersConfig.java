@@ -0,0 +1,24 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "async-orders")
+@Data
+public class AsyncOrdersConfig {
+    // Workflows running at the same time; each one holds a worker thread for the whole saga or 2PC
+    private int workers = 16;
+
+    // Accepted workflows waiting for a worker; when full new requests get 503 instead of queueing without bound
+    private int queueCapacity = 1000;
+
+    // How long a finished workflow can still be polled
+    private Duration retention = Duration.ofMinutes(10);
+
+    // Open SSE subscriptions are closed after this long even if the workflow is still running
+    private Duration sseTimeout = Duration.ofMinutes(1);
+}
@@ -0,0 +1,21 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "batch-orders")
+@Data
+public class BatchOrdersConfig {
+    // Orders of one batch in flight at the same time; reading the body pauses while all slots are taken
+    private int parallelism = 8;
+
+    // Items beyond this are not read and reported as one failed result
+    private int maxItems = 1000;
+
+    // Upper bound for streaming the results of a whole batch
+    private Duration timeout = Duration.ofMinutes(5);
+}
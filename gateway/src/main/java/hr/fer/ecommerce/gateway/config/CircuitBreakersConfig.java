@@ -0,0 +1,26 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "circuit-breaker")
+@Data
+public class CircuitBreakersConfig {
+
+    // Percentage of failed or slow calls in the sliding window that opens the breaker
+    private float failureRateThreshold = 50;
+    private float slowCallRateThreshold = 50;
+    private Duration slowCallDuration = Duration.ofSeconds(2);
+
+    // Last N calls are evaluated, but only once at least minimumNumberOfCalls were made
+    private int slidingWindowSize = 20;
+    private int minimumNumberOfCalls = 10;
+
+    // How long an open breaker rejects calls before letting a few probes through
+    private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+    private int permittedCallsInHalfOpenState = 3;
+}
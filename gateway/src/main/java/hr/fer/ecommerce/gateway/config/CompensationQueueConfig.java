@@ -0,0 +1,42 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "compensation-queue")
+@Data
+public class CompensationQueueConfig {
+
+    // Off: the request only enqueues and the poller sends every compensation, so the client never waits on a
+    // struggling service, but a failed saga or 2PC reports no completed compensations of its own.
+    // On: one blocking attempt on the request thread first, which keeps the reported counts exact at the cost
+    // of up to a downstream timeout per compensation while a service hangs.
+    private boolean attemptInline = false;
+
+    // How often the queue is checked for retries that are due
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    // Due retries picked up per poll
+    private int batchSize = 100;
+
+    // Delay before the first retry; every further failure multiplies it, up to the maximum
+    private Duration initialBackoff = Duration.ofMillis(500);
+    private double backoffMultiplier = 2.0;
+    private Duration maxBackoff = Duration.ofMinutes(5);
+
+    // Share of each delay that is randomised, so the retries piled up by one outage do not all fire together
+    private double jitter = 0.5;
+
+    // Attempts, counting a failed inline one, before a compensation is dead-lettered
+    private int maxAttempts = 10;
+
+    // Retries in flight at once against one downstream service
+    private int perTargetConcurrency = 4;
+
+    // Finished compensations are removed after this long; dead letters are kept until retried
+    private Duration retention = Duration.ofHours(1);
+}
@@ -0,0 +1,30 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// AIMD concurrency limit per downstream; the upper bound is that downstream's connection pool size
+@Configuration
+@ConfigurationProperties(prefix = "concurrency-limit")
+@Data
+public class ConcurrencyLimitsConfig {
+    // Off: every call goes straight to the connection pool
+    private boolean enabled = true;
+
+    // 0 or less starts at the connection pool size, so the limit only shrinks once latency shows congestion
+    private int initialLimit = 0;
+    private int minLimit = 1;
+
+    // The limit shrinks by backoffRatio while the recent RTT (averaged over about shortRttWindow calls) exceeds
+    // rttTolerance x the baseline RTT (averaged over about longRttWindow calls), or on an I/O error
+    private double rttTolerance = 1.5;
+    private double backoffRatio = 0.9;
+    private int shortRttWindow = 10;
+    private int longRttWindow = 200;
+
+    // How long a call may wait for a free slot before it is rejected
+    private Duration queueTimeout = Duration.ofMillis(50);
+}
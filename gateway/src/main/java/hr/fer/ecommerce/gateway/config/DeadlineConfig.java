@@ -0,0 +1,19 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "deadline")
+@Data
+public class DeadlineConfig {
+    // Deadline given to an order when the client sends none; a client deadline further out is cut to this
+    private Duration defaultTimeout = Duration.ofSeconds(10);
+
+    // Extra wait for a response past the deadline; services check the deadline before committing, so this
+    // gets their definite answer instead of an unknown outcome
+    private Duration responseGrace = Duration.ofMillis(250);
+}
@@ -0,0 +1,41 @@
+package hr.fer.ecommerce.gateway.config;
+
+import hr.fer.ecommerce.gateway.client.RequestDeadline;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ExecutorConfig {
+
+    // Participant calls are blocking REST calls, so one virtual thread per call is enough. The thread is
+    // created by the submitting thread, which lets each task carry the order's deadline and trace along.
+    @Bean(destroyMethod = "close")
+    public ExecutorService participantExecutor() {
+        ThreadFactory virtualThreads = Thread.ofVirtual().factory();
+        return Executors.newThreadPerTaskExecutor(task ->
+                virtualThreads.newThread(TraceContext.propagate(RequestDeadline.propagate(task))));
+    }
+
+    // Fixed workers and a bounded queue for accepted async orders; a full queue rejects instead of growing.
+    // With virtual threads on the workers are virtual too, the worker count still bounds the orders in flight.
+    @Bean(destroyMethod = "close")
+    public ThreadPoolExecutor workflowExecutor(AsyncOrdersConfig asyncOrdersConfig, Environment environment) {
+        ThreadFactory workers = Threading.VIRTUAL.isActive(environment)
+                ? Thread.ofVirtual().name("order-workflow-", 1).factory()
+                : Thread.ofPlatform().name("order-workflow-", 1).factory();
+        return new ThreadPoolExecutor(asyncOrdersConfig.getWorkers(), asyncOrdersConfig.getWorkers(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(asyncOrdersConfig.getQueueCapacity()),
+                workers,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,21 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "idempotency")
+@Data
+public class IdempotencyConfig {
+    // Keys kept in memory; the oldest key is evicted first once the cache is full
+    private int maxEntries = 10_000;
+
+    // A retry with the same key after this long starts a new order
+    private Duration ttl = Duration.ofHours(1);
+
+    // Also store finished responses in the gateway database so they survive a restart
+    private boolean persist = false;
+}
@@ -0,0 +1,16 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "metrics.latency")
+@Data
+public class LatencyMetricsConfig {
+    // The sliding window is a ring of slots; the oldest slot is replaced every slotDuration
+    private Duration slotDuration = Duration.ofSeconds(10);
+    private int slots = 6;
+}
@@ -0,0 +1,17 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "metrics.writer")
+@Data
+public class MetricsWriterConfig {
+    // Rows waiting to be written; anything beyond this is dropped and counted instead of blocking the order path
+    private int capacity = 10_000;
+    private int batchSize = 500;
+    private Duration flushInterval = Duration.ofMillis(200);
+}
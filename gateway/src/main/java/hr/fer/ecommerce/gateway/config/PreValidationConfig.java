@@ -0,0 +1,21 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "pre-validation")
+@Data
+public class PreValidationConfig {
+    // Ask the stock, payment and shipping validators concurrently before the first write of an order
+    private boolean enabled = false;
+
+    // A validator that has not answered by then is skipped and the order goes ahead
+    private Duration timeout = Duration.ofMillis(300);
+
+    // A rejection answers identical checks for this long without calling the validator again
+    private Duration negativeCacheTtl = Duration.ofSeconds(5);
+}
@@ -0,0 +1,13 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "saga")
+@Data
+public class SagaConfig {
+    // Create payment and shipment concurrently once the order exists, and compensate them concurrently
+    private boolean parallelSteps = false;
+}
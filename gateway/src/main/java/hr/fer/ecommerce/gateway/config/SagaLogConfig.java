@@ -0,0 +1,21 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "saga-log")
+@Data
+public class SagaLogConfig {
+    // Records written together in one transaction; concurrent sagas share a single commit
+    private int maxBatchSize = 500;
+
+    // Finished sagas are removed from the log after this long
+    private Duration retention = Duration.ofHours(1);
+
+    // Compensate sagas left unfinished by a previous run when the gateway starts
+    private boolean recoverOnStartup = true;
+}
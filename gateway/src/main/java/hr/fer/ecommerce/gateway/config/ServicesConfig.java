@@ -4,6 +4,8 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @ConfigurationProperties(prefix = "service")
 @Data
@@ -16,6 +18,18 @@ public class ServicesConfig {
     @Data
     public static class ServiceConfig {
         private String url;
+        private PoolConfig pool = new PoolConfig();
     }
-}
 
+    @Data
+    public static class PoolConfig {
+        private int maxConnections = 50;
+        private Duration keepAlive = Duration.ofSeconds(30);
+        private Duration connectTimeout = Duration.ofSeconds(1);
+        // how long a caller may wait to lease a connection from an exhausted pool
+        private Duration connectionRequestTimeout = Duration.ofMillis(500);
+        private Duration readTimeout = Duration.ofSeconds(5);
+        private Duration responseTimeout = Duration.ofSeconds(5);
+        private Duration idleEviction = Duration.ofSeconds(30);
+    }
+}
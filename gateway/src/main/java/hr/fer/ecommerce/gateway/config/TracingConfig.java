@@ -0,0 +1,35 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "tracing")
+@Data
+public class TracingConfig {
+    // Records spans and forwards the traceparent header; when off, requests are neither traced nor propagated
+    private boolean enabled = true;
+
+    // Spans kept in memory for the trace endpoint; the oldest are dropped first
+    private int maxSpans = 10_000;
+
+    private ExportConfig export = new ExportConfig();
+
+    @Data
+    public static class ExportConfig {
+        private boolean enabled = true;
+
+        // JSON-lines file spans are appended to; rotated files get a .1, .2, ... suffix
+        private String file = "traces/spans.jsonl";
+        private DataSize maxFileSize = DataSize.ofMegabytes(10);
+        private int maxFiles = 5;
+
+        // Spans waiting to be written; anything beyond this is dropped and counted instead of blocking requests
+        private int capacity = 10_000;
+        private Duration flushInterval = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,75 @@
+package hr.fer.ecommerce.gateway.config;
+
+import hr.fer.ecommerce.gateway.controller.TraceController;
+import hr.fer.ecommerce.gateway.dto.SpanResponse;
+import hr.fer.ecommerce.gateway.service.SpanStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Instant;
+
+// Records a server span for every request and makes its trace current while the request is handled
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class TracingFilter extends OncePerRequestFilter {
+
+    private final TracingConfig tracingConfig;
+    private final SpanStore spanStore;
+
+    // Reading traces is not traced, otherwise every look at a trace would push spans out of the store
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !tracingConfig.isEnabled() || request.getRequestURI().startsWith(TraceController.PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        TraceContext context = TraceContext.fromHeader(request.getHeader(TraceContext.HEADER));
+        response.setHeader(TraceContext.TRACE_ID_HEADER, context.getTraceId());
+
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        String error = null;
+        TraceContext.set(context);
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            error = e.getMessage();
+            throw e;
+        } finally {
+            TraceContext.clear();
+            spanStore.record(SpanResponse.builder()
+                    .traceId(context.getTraceId())
+                    .spanId(context.getSpanId())
+                    .parentSpanId(context.getParentSpanId())
+                    .kind(SpanResponse.SERVER)
+                    .name(request.getMethod() + " " + route(request))
+                    .status(error != null ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus())
+                    .error(error)
+                    .startedAt(startedAt)
+                    .durationMs(TraceContext.millis(System.nanoTime() - start))
+                    .dbMs(context.getDbMs())
+                    .dbCalls(context.getDbCalls())
+                    .outboundMs(context.getOutboundMs())
+                    .outboundCalls(context.getOutboundCalls())
+                    .build());
+        }
+    }
+
+    // The matched mapping such as /api/gateway/async/workflows/{workflowId}, so spans of one endpoint group together
+    private String route(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : request.getRequestURI();
+    }
+}
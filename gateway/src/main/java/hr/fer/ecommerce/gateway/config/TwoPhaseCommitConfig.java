@@ -0,0 +1,32 @@
+package hr.fer.ecommerce.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "two-phase-commit")
+@Data
+public class TwoPhaseCommitConfig {
+
+    // Prepare payment and shipment concurrently once the order is prepared
+    private boolean parallelPrepare = false;
+
+    // Assign the order ID from a pre-allocated block so order, payment and shipment are all prepared concurrently
+    private boolean preallocateOrderIds = false;
+
+    // Respond as soon as the commit decision is logged and send the commit messages in the background,
+    // retried through the compensation queue until every participant has acknowledged
+    private boolean earlyAcknowledge = false;
+
+    // Upper bound for a single commit or abort call; commit and abort messages are always sent concurrently
+    private Duration participantTimeout = Duration.ofSeconds(5);
+
+    // A reservation this old that no running transaction owns is in doubt; must exceed the longest prepare phase
+    private Duration inDoubtTimeout = Duration.ofSeconds(30);
+
+    // How often the resolver scans the participants for in-doubt reservations
+    private Duration resolverInterval = Duration.ofSeconds(10);
+}
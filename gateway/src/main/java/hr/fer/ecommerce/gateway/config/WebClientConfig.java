@@ -2,14 +2,13 @@ package hr.fer.ecommerce.gateway.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 
 @Configuration
-public class RestTemplateConfig {
+public class WebClientConfig {
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public WebClient webClient(WebClient.Builder builder) {
+        return builder.build();
     }
 }
-
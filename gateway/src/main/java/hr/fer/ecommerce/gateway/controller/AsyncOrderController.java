@@ -0,0 +1,70 @@
+package hr.fer.ecommerce.gateway.controller;
+
+import hr.fer.ecommerce.gateway.dto.PlaceOrderRequest;
+import hr.fer.ecommerce.gateway.dto.WorkflowStatusResponse;
+import hr.fer.ecommerce.gateway.service.OrderWorkflowService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+// Asynchronous variants of the place-order endpoints: 202 with a workflow ID instead of holding the connection
+@RestController
+@RequestMapping("/api/gateway/async")
+@RequiredArgsConstructor
+@Validated
+@Slf4j
+@CrossOrigin(origins = "*")
+public class AsyncOrderController {
+
+    private final OrderWorkflowService orderWorkflowService;
+
+    @PostMapping("/place-order-saga")
+    public ResponseEntity<WorkflowStatusResponse> placeOrder(@RequestBody @Valid PlaceOrderRequest request) {
+        return accept(request, orderWorkflowService::submitSaga);
+    }
+
+    @PostMapping("/place-order-2pc")
+    public ResponseEntity<WorkflowStatusResponse> placeOrderWith2PC(@RequestBody @Valid PlaceOrderRequest request) {
+        return accept(request, orderWorkflowService::submit2PC);
+    }
+
+    @GetMapping("/workflows/{workflowId}")
+    public ResponseEntity<WorkflowStatusResponse> getStatus(@PathVariable String workflowId) {
+        return orderWorkflowService.status(workflowId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/workflows/{workflowId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe(@PathVariable String workflowId) {
+        return orderWorkflowService.subscribe(workflowId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private ResponseEntity<WorkflowStatusResponse> accept(PlaceOrderRequest request,
+                                                          Function<PlaceOrderRequest, WorkflowStatusResponse> submit) {
+        try {
+            WorkflowStatusResponse status = submit.apply(request);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/gateway/async/workflows/" + status.getWorkflowId()))
+                    .body(status);
+        } catch (RejectedExecutionException e) {
+            log.warn("Async order queue is full, rejecting request for customer: {}", request.getCustomerEmail());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+    }
+}
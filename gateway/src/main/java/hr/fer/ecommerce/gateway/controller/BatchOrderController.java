@@ -0,0 +1,40 @@
+package hr.fer.ecommerce.gateway.controller;
+
+import hr.fer.ecommerce.gateway.service.BatchOrderService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.InputStream;
+
+// Bulk order placement: the body is a JSON array or NDJSON of PlaceOrderRequest, the response is NDJSON of
+// BatchOrderResult in completion order
+@RestController
+@RequestMapping("/api/gateway/batch")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class BatchOrderController {
+
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private final BatchOrderService batchOrderService;
+
+    @PostMapping(value = "/place-order-saga", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE})
+    public ResponseEntity<ResponseBodyEmitter> placeOrders(InputStream body) {
+        return ResponseEntity.ok()
+                .contentType(BatchOrderService.NDJSON)
+                .body(batchOrderService.placeOrdersWithSaga(body));
+    }
+
+    @PostMapping(value = "/place-order-2pc", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON_VALUE})
+    public ResponseEntity<ResponseBodyEmitter> placeOrdersWith2PC(InputStream body) {
+        return ResponseEntity.ok()
+                .contentType(BatchOrderService.NDJSON)
+                .body(batchOrderService.placeOrdersWith2PC(body));
+    }
+}
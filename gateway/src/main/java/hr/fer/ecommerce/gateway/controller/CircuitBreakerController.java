@@ -0,0 +1,24 @@
+package hr.fer.ecommerce.gateway.controller;
+
+import hr.fer.ecommerce.gateway.client.CircuitBreakers;
+import hr.fer.ecommerce.gateway.dto.CircuitBreakerStateResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/gateway/circuit-breakers")
+@RequiredArgsConstructor
+public class CircuitBreakerController {
+
+    private final CircuitBreakers circuitBreakers;
+
+    @GetMapping
+    public ResponseEntity<List<CircuitBreakerStateResponse>> getCircuitBreakers() {
+        return ResponseEntity.ok(circuitBreakers.states());
+    }
+}
@@ -0,0 +1,40 @@
+package hr.fer.ecommerce.gateway.controller;
+
+import hr.fer.ecommerce.gateway.dto.CompensationQueueStats;
+import hr.fer.ecommerce.gateway.model.CompensationTask;
+import hr.fer.ecommerce.gateway.service.CompensationQueue;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/gateway/compensations")
+@RequiredArgsConstructor
+public class CompensationQueueController {
+
+    private final CompensationQueue compensationQueue;
+
+    @GetMapping
+    public ResponseEntity<CompensationQueueStats> getStats() {
+        return ResponseEntity.ok(compensationQueue.stats());
+    }
+
+    @GetMapping("/dead-letters")
+    public ResponseEntity<List<CompensationTask>> getDeadLetters(@RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(compensationQueue.deadLetters(limit));
+    }
+
+    @PostMapping("/dead-letters/{id}/retry")
+    public ResponseEntity<Void> retryDeadLetter(@PathVariable Long id) {
+        return compensationQueue.retryDeadLetter(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,24 @@
+package hr.fer.ecommerce.gateway.controller;
+
+import hr.fer.ecommerce.gateway.client.ConcurrencyLimits;
+import hr.fer.ecommerce.gateway.dto.ConcurrencyLimitResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/gateway/concurrency-limits")
+@RequiredArgsConstructor
+public class ConcurrencyLimitController {
+
+    private final ConcurrencyLimits concurrencyLimits;
+
+    @GetMapping
+    public ResponseEntity<List<ConcurrencyLimitResponse>> getConcurrencyLimits() {
+        return ResponseEntity.ok(concurrencyLimits.stats());
+    }
+}
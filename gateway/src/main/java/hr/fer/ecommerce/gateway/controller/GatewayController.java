@@ -1,7 +1,13 @@
 package hr.fer.ecommerce.gateway.controller;
 
+import hr.fer.ecommerce.gateway.client.RequestDeadline;
+import hr.fer.ecommerce.gateway.config.DeadlineConfig;
+import hr.fer.ecommerce.gateway.dto.CommitStatusResponse;
 import hr.fer.ecommerce.gateway.dto.PlaceOrderRequest;
 import hr.fer.ecommerce.gateway.dto.PlaceOrderResponse;
+import hr.fer.ecommerce.gateway.service.IdempotencyKeyReusedException;
+import hr.fer.ecommerce.gateway.service.IdempotencyService;
+import hr.fer.ecommerce.gateway.service.MetricsWriter;
 import hr.fer.ecommerce.gateway.service.SagaService;
 import hr.fer.ecommerce.gateway.service.TwoPhaseCommitService;
 import jakarta.validation.Valid;
@@ -12,6 +18,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
 @RestController
 @RequestMapping("/api/gateway")
 @RequiredArgsConstructor
@@ -20,19 +29,36 @@ import org.springframework.web.bind.annotation.*;
 @CrossOrigin(origins = "*")
 public class GatewayController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
     private final SagaService sagaService;
     private final TwoPhaseCommitService twoPhaseCommitService;
+    private final IdempotencyService idempotencyService;
+    private final DeadlineConfig deadlineConfig;
 
     @PostMapping("/place-order-saga")
     public ResponseEntity<PlaceOrderResponse> placeOrder(
-            @RequestBody @Valid PlaceOrderRequest request) {
+            @RequestBody @Valid PlaceOrderRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestHeader(value = RequestDeadline.HEADER, required = false) Long deadlineHeader) {
+
+        long deadline = deadline(deadlineHeader);
+        if (deadline <= System.currentTimeMillis()) {
+            return deadlineExceeded(deadline);
+        }
+
+        if (idempotencyKey != null) {
+            return placeIdempotent(MetricsWriter.SAGA, idempotencyKey, request,
+                    () -> RequestDeadline.call(deadline, () -> sagaService.placeOrder(request)));
+        }
 
         log.info("Received place order request for customer: {}", request.getCustomerEmail());
 
         // ✅ MORA BITI OVDJE
         long startTime = System.nanoTime();
 
-        PlaceOrderResponse response = sagaService.placeOrder(request);
+        PlaceOrderResponse response = RequestDeadline.call(deadline, () -> sagaService.placeOrder(request));
 
         long durationMs = (System.nanoTime() - startTime) / 1_000_000;
         log.info("GATEWAY | SAGA | totalDuration={} ms | success={}",
@@ -47,14 +73,26 @@ public class GatewayController {
 
     @PostMapping("/place-order-2pc")
     public ResponseEntity<PlaceOrderResponse> placeOrderWith2PC(
-            @RequestBody @Valid PlaceOrderRequest request) {
+            @RequestBody @Valid PlaceOrderRequest request,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @RequestHeader(value = RequestDeadline.HEADER, required = false) Long deadlineHeader) {
+
+        long deadline = deadline(deadlineHeader);
+        if (deadline <= System.currentTimeMillis()) {
+            return deadlineExceeded(deadline);
+        }
+
+        if (idempotencyKey != null) {
+            return placeIdempotent(MetricsWriter.TWO_PHASE_COMMIT, idempotencyKey, request,
+                    () -> RequestDeadline.call(deadline, () -> twoPhaseCommitService.placeOrderWith2PC(request)));
+        }
 
         log.info("Received 2PC place order request for customer: {}", request.getCustomerEmail());
 
         // ✅ I OVDJE
         long startTime = System.nanoTime();
 
-        PlaceOrderResponse response = twoPhaseCommitService.placeOrderWith2PC(request);
+        PlaceOrderResponse response = RequestDeadline.call(deadline, () -> twoPhaseCommitService.placeOrderWith2PC(request));
 
         long durationMs = (System.nanoTime() - startTime) / 1_000_000;
         log.info("GATEWAY | 2PC | totalDuration={} ms | success={}",
@@ -66,4 +104,48 @@ public class GatewayController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
+
+    @GetMapping("/2pc/{transactionId}/commit")
+    public ResponseEntity<CommitStatusResponse> getCommitStatus(@PathVariable String transactionId) {
+        return twoPhaseCommitService.commitStatus(transactionId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // A retry joins the first run or gets its stored response; the same key with another body is rejected
+    private ResponseEntity<PlaceOrderResponse> placeIdempotent(String protocol, String idempotencyKey,
+                                                               PlaceOrderRequest request,
+                                                               Supplier<PlaceOrderResponse> placeOrder) {
+        log.info("Received {} place order request for customer: {} with idempotency key {}",
+                protocol, request.getCustomerEmail(), idempotencyKey);
+        try {
+            IdempotencyService.Result result = idempotencyService.execute(protocol, idempotencyKey, request, placeOrder);
+            return ResponseEntity.status(result.response().isSuccess() ? HttpStatus.CREATED : HttpStatus.INTERNAL_SERVER_ERROR)
+                    .header(IDEMPOTENT_REPLAYED, String.valueOf(result.replayed()))
+                    .body(result.response());
+        } catch (IdempotencyKeyReusedException e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(PlaceOrderResponse.builder()
+                    .success(false)
+                    .message("Idempotency key reused")
+                    .errorDetails(e.getMessage())
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        }
+    }
+
+    // The client's deadline (epoch milliseconds), capped by the configured default
+    private long deadline(Long deadlineHeader) {
+        long defaultDeadline = System.currentTimeMillis() + deadlineConfig.getDefaultTimeout().toMillis();
+        return deadlineHeader != null ? Math.min(deadlineHeader, defaultDeadline) : defaultDeadline;
+    }
+
+    // Nothing has been sent downstream yet, so an already expired order is refused outright
+    private ResponseEntity<PlaceOrderResponse> deadlineExceeded(long deadline) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(PlaceOrderResponse.builder()
+                .success(false)
+                .message("Request deadline exceeded")
+                .errorDetails("Deadline passed " + (System.currentTimeMillis() - deadline) + " ms before the order was started")
+                .timestamp(LocalDateTime.now())
+                .build());
+    }
 }
@@ -0,0 +1,46 @@
+package hr.fer.ecommerce.gateway.controller;
+
+import hr.fer.ecommerce.gateway.dto.InDoubtResolutionStats;
+import hr.fer.ecommerce.gateway.dto.LatencyMetricsResponse;
+import hr.fer.ecommerce.gateway.dto.MetricsWriterStats;
+import hr.fer.ecommerce.gateway.service.InDoubtTransactionResolver;
+import hr.fer.ecommerce.gateway.service.LatencyMetrics;
+import hr.fer.ecommerce.gateway.service.MetricsWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/gateway/metrics")
+@RequiredArgsConstructor
+public class MetricsController {
+
+    private final MetricsWriter metricsWriter;
+    private final LatencyMetrics latencyMetrics;
+    private final InDoubtTransactionResolver inDoubtTransactionResolver;
+
+    @GetMapping
+    public ResponseEntity<LatencyMetricsResponse> getLatencyMetrics(@RequestParam(required = false) Integer windowSeconds) {
+        return ResponseEntity.ok(latencyMetrics.snapshot(windowSeconds));
+    }
+
+    @PostMapping("/reset")
+    public ResponseEntity<Void> resetLatencyMetrics() {
+        latencyMetrics.reset();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/writer")
+    public ResponseEntity<MetricsWriterStats> getWriterStats() {
+        return ResponseEntity.ok(metricsWriter.stats());
+    }
+
+    @GetMapping("/in-doubt")
+    public ResponseEntity<InDoubtResolutionStats> getInDoubtStats() {
+        return ResponseEntity.ok(inDoubtTransactionResolver.stats());
+    }
+}
@@ -0,0 +1,24 @@
+package hr.fer.ecommerce.gateway.controller;
+
+import hr.fer.ecommerce.gateway.client.ConnectionPools;
+import hr.fer.ecommerce.gateway.dto.PoolStatsResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/gateway/pools")
+@RequiredArgsConstructor
+public class PoolController {
+
+    private final ConnectionPools connectionPools;
+
+    @GetMapping
+    public ResponseEntity<List<PoolStatsResponse>> getPoolStats() {
+        return ResponseEntity.ok(connectionPools.stats());
+    }
+}
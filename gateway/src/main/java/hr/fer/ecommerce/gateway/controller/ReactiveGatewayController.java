@@ -0,0 +1,71 @@
+package hr.fer.ecommerce.gateway.controller;
+
+import hr.fer.ecommerce.gateway.dto.PlaceOrderRequest;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderResponse;
+import hr.fer.ecommerce.gateway.service.ReactiveSagaService;
+import hr.fer.ecommerce.gateway.service.ReactiveTwoPhaseCommitService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+// Latency comparison endpoints only. Calls go straight from WebClient to the services: no circuit breakers,
+// concurrency limits, deadlines, idempotency keys, saga log, coordinator log or compensation queue, so a
+// failed compensation or an in-doubt 2PC here is only logged. Off unless reactive.enabled is set.
+@RestController
+@RequestMapping("/api/gateway")
+@RequiredArgsConstructor
+@Validated
+@Slf4j
+@CrossOrigin(origins = "*")
+@ConditionalOnProperty(prefix = "reactive", name = "enabled")
+public class ReactiveGatewayController {
+
+    private final ReactiveSagaService reactiveSagaService;
+    private final ReactiveTwoPhaseCommitService reactiveTwoPhaseCommitService;
+
+    @PostMapping("/place-order-saga-reactive")
+    public Mono<ResponseEntity<PlaceOrderResponse>> placeOrderReactive(
+            @RequestBody @Valid PlaceOrderRequest request) {
+
+        log.info("Received reactive place order request for customer: {}", request.getCustomerEmail());
+        long startTime = System.nanoTime();
+
+        return reactiveSagaService.placeOrder(request)
+                .map(response -> {
+                    long durationMs = (System.nanoTime() - startTime) / 1_000_000;
+                    log.info("GATEWAY | SAGA-REACTIVE | totalDuration={} ms | success={}",
+                            durationMs, response.isSuccess());
+                    return toResponseEntity(response);
+                });
+    }
+
+    @PostMapping("/place-order-2pc-reactive")
+    public Mono<ResponseEntity<PlaceOrderResponse>> placeOrderWith2PCReactive(
+            @RequestBody @Valid PlaceOrderRequest request) {
+
+        log.info("Received reactive 2PC place order request for customer: {}", request.getCustomerEmail());
+        long startTime = System.nanoTime();
+
+        return reactiveTwoPhaseCommitService.placeOrderWith2PC(request)
+                .map(response -> {
+                    long durationMs = (System.nanoTime() - startTime) / 1_000_000;
+                    log.info("GATEWAY | 2PC-REACTIVE | totalDuration={} ms | success={}",
+                            durationMs, response.isSuccess());
+                    return toResponseEntity(response);
+                });
+    }
+
+    private ResponseEntity<PlaceOrderResponse> toResponseEntity(PlaceOrderResponse response) {
+        if (response.isSuccess()) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } else {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+}
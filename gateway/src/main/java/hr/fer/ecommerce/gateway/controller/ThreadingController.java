@@ -0,0 +1,22 @@
+package hr.fer.ecommerce.gateway.controller;
+
+import hr.fer.ecommerce.gateway.dto.ThreadingStatsResponse;
+import hr.fer.ecommerce.gateway.service.ThreadingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/gateway/threading")
+@RequiredArgsConstructor
+public class ThreadingController {
+
+    private final ThreadingService threadingService;
+
+    @GetMapping
+    public ResponseEntity<ThreadingStatsResponse> getThreadingStats() {
+        return ResponseEntity.ok(threadingService.stats());
+    }
+}
@@ -0,0 +1,37 @@
+package hr.fer.ecommerce.gateway.controller;
+
+import hr.fer.ecommerce.gateway.dto.SpanResponse;
+import hr.fer.ecommerce.gateway.dto.TraceResponse;
+import hr.fer.ecommerce.gateway.service.SpanStore;
+import hr.fer.ecommerce.gateway.service.TraceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping(TraceController.PATH)
+@RequiredArgsConstructor
+public class TraceController {
+
+    public static final String PATH = "/api/gateway/traces";
+
+    private final SpanStore spanStore;
+    private final TraceService traceService;
+
+    // The gateway's own spans; server spans without a parent are the entry points of traces
+    @GetMapping
+    public ResponseEntity<List<SpanResponse>> getRecentSpans(@RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(spanStore.recent(limit));
+    }
+
+    @GetMapping("/{traceId}")
+    public ResponseEntity<TraceResponse> getTrace(@PathVariable String traceId) {
+        return ResponseEntity.ok(traceService.trace(traceId));
+    }
+}
@@ -0,0 +1,22 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One NDJSON line of a batch response, written when the item finishes
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchOrderResult {
+    // position of the request in the submitted batch, results arrive in completion order
+    private int index;
+    private boolean success;
+
+    // set when the item was rejected before reaching the saga or 2PC
+    private String error;
+
+    private PlaceOrderResponse response;
+}
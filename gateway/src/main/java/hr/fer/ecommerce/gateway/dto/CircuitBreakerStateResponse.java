@@ -0,0 +1,22 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CircuitBreakerStateResponse {
+    private String service;
+    private String operation;
+    private String state;
+    private float failureRate;      // -1 until the minimum number of calls is reached
+    private float slowCallRate;
+    private int bufferedCalls;
+    private int failedCalls;
+    private int slowCalls;
+    private long notPermittedCalls;
+}
@@ -0,0 +1,31 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import hr.fer.ecommerce.gateway.model.CompensationTask;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CommitStatusResponse {
+
+    public static final String COMMITTING = "COMMITTING";
+    public static final String COMMITTED = "COMMITTED";
+    public static final String FAILED = "FAILED";
+
+    private String transactionId;
+    private Long orderId;
+    private String state;
+
+    private LocalDateTime decidedAt;
+    private LocalDateTime completedAt;
+
+    // commit messages sent in the background, with their attempts so far; empty for a synchronous commit
+    private List<CompensationTask> commits;
+}
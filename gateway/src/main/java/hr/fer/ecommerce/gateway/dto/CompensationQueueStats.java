@@ -0,0 +1,26 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CompensationQueueStats {
+    // rows in the queue by status; finished ones until they are purged
+    private int pending;
+    private int deadLetters;
+    private int done;
+
+    // retries running right now, over all downstream services
+    private int inFlight;
+
+    // totals since startup
+    private long enqueued;
+    private long succeeded;
+    private long failedAttempts;
+    private long deadLettered;
+}
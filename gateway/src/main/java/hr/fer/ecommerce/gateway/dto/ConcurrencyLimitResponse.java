@@ -0,0 +1,22 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConcurrencyLimitResponse {
+    private String service;
+    private int limit;
+    private int maxLimit;
+    private int inFlight;
+    private int queued;
+    private double shortRttMs;
+    private double longRttMs;
+    private long accepted;
+    private long rejected;
+}
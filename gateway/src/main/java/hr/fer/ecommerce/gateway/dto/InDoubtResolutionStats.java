@@ -0,0 +1,30 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InDoubtResolutionStats {
+    private LocalDateTime lastScanAt;
+    private boolean lastScanFailed;
+
+    // in-doubt reservations found by the last scan
+    private int inDoubtOrders;
+    private int inDoubtPayments;
+    private int inDoubtShipments;
+
+    // commit decisions whose participants have not all been confirmed committed yet
+    private long pendingDecisions;
+
+    // totals since startup
+    private long committed;
+    private long aborted;
+    private long failed;
+}
@@ -0,0 +1,19 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LatencyMetricsResponse {
+    private long windowSeconds;
+    private LocalDateTime resetAt;
+    private List<LatencyStatsResponse> histograms;
+}
@@ -0,0 +1,17 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LatencyStatsResponse {
+    private String protocol;
+    private String step;
+    private LatencySnapshot window;
+    private LatencySnapshot sinceReset;
+}
@@ -0,0 +1,19 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MetricsWriterStats {
+    private int queued;
+    private int capacity;
+    private long recorded;
+    private long written;
+    private long dropped;
+    private long failed;
+}
@@ -0,0 +1,29 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ParticipantOutcome {
+
+    public static final String COMMITTED = "COMMITTED";
+    public static final String ABORTED = "ABORTED";
+    public static final String FAILED = "FAILED";
+    public static final String TIMED_OUT = "TIMED_OUT";
+    public static final String QUEUED = "QUEUED";   // handed to the compensation queue without an attempt of its own
+
+    private String participant;
+    private String phase;
+    private String outcome;
+    private long latency;
+    private String error;
+
+    public boolean isAcknowledged() {
+        return COMMITTED.equals(outcome) || ABORTED.equals(outcome);
+    }
+}
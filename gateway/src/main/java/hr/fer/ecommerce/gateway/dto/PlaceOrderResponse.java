@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
@@ -33,15 +34,22 @@ public class PlaceOrderResponse {
 
     private String errorDetails;
 
+    private String coordinatorTransactionId;   // 2PC transaction, for following its commit
+    private String commitStatus;               // COMMITTING while an early-acknowledged commit is still being sent
+
     private long orderLatency;
     private long paymentLatency;
     private long shippingLatency;
     private long totalLatency;
+    private long criticalPathLatency;   // order + payment + shipping, or order + the slower of the two when run in parallel
     private int compensations;
+    private int compensationsCompleted;   // of those, the ones that went through or were handed to the compensation queue
     private long prepareLatency;
     private long commitLatency;
     private long abortLatency;
     private int global2pcRollbacks;   // 2PC rollback
 
+    private List<ParticipantOutcome> participantOutcomes;
+
 }
 
@@ -0,0 +1,18 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PoolStatsResponse {
+    private String service;
+    private int leased;
+    private int pending;
+    private int available;
+    private int max;
+}
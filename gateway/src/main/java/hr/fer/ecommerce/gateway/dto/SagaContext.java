@@ -9,7 +9,13 @@ import lombok.Data;
 @Data
 @Builder
 public class SagaContext {
+    private String sagaId;
+
     private OrderResponse order;
     private PaymentResponse payment;
     private ShipmentResponse shipment;
+
+    private long orderLatency;
+    private long paymentLatency;
+    private long shippingLatency;
 }
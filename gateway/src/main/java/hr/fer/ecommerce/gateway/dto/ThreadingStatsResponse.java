@@ -0,0 +1,31 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ThreadingStatsResponse {
+    private boolean virtualThreads;
+    private Integer dbPermits;        // null when database access is not bounded
+    private Integer dbPermitsAvailable;
+    private Integer dbPermitWaiters;
+    private Long pinnedEvents;        // null when pinning is not watched
+    private List<PinnedSite> pinnedSites;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class PinnedSite {
+        private String site;
+        private long count;
+        private long maxMillis;
+    }
+}
@@ -0,0 +1,18 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TraceResponse {
+    private String traceId;
+    private List<SpanResponse> spans;        // every service's spans in start order
+    private List<String> unavailableServices; // services whose spans could not be fetched
+}
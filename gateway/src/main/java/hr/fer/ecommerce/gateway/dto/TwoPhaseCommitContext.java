@@ -13,6 +13,8 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @Builder
 public class TwoPhaseCommitContext {
+    private String transactionId;
+
     private OrderResponse order;
     private PaymentResponse payment;
     private ShipmentResponse shipment;
@@ -25,6 +27,9 @@ public class TwoPhaseCommitContext {
     private boolean paymentCommitted;
     private boolean shipmentCommitted;
 
+    // acknowledged early: the commit messages are still being sent and the orders stay registered until they are
+    private boolean committingInBackground;
+
     private long orderLatency;
     private long paymentLatency;
     private long shippingLatency;
@@ -0,0 +1,35 @@
+package hr.fer.ecommerce.gateway.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WorkflowStatusResponse {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private String workflowId;
+    private String protocol;
+    private String state;
+
+    private LocalDateTime acceptedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    // set once the workflow finished, same body the synchronous endpoints return
+    private PlaceOrderResponse result;
+
+    public boolean isFinished() {
+        return COMPLETED.equals(state) || FAILED.equals(state);
+    }
+}
@@ -0,0 +1,60 @@
+package hr.fer.ecommerce.gateway.model;
+
+import hr.fer.ecommerce.gateway.client.Downstream;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One row of the compensation_queue table
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CompensationTask {
+
+    public enum Action {
+        CANCEL_ORDER(Downstream.ORDER),
+        REFUND_PAYMENT(Downstream.PAYMENT),
+        CANCEL_SHIPMENT(Downstream.SHIPPING),
+        ABORT_ORDER(Downstream.ORDER),
+        ABORT_PAYMENT(Downstream.PAYMENT),
+        ABORT_SHIPMENT(Downstream.SHIPPING),
+        COMMIT_ORDER(Downstream.ORDER),
+        COMMIT_PAYMENT(Downstream.PAYMENT),
+        COMMIT_SHIPMENT(Downstream.SHIPPING);
+
+        private final Downstream target;
+
+        Action(Downstream target) {
+            this.target = target;
+        }
+
+        public Downstream target() {
+            return target;
+        }
+
+        public boolean isCommit() {
+            return this == COMMIT_ORDER || this == COMMIT_PAYMENT || this == COMMIT_SHIPMENT;
+        }
+    }
+
+    public enum Status {
+        PENDING,
+        DONE,
+        DEAD
+    }
+
+    private Long id;
+    private Action action;
+    private Long resourceId;     // order, payment or shipment to undo or commit
+    private String reference;    // saga ID or 2PC transaction ID, for tracing a dead letter back
+    private Status status;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
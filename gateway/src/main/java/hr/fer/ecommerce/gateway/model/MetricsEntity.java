@@ -1,8 +1,19 @@
+package hr.fer.ecommerce.gateway.model;
+
 import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "metrics")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
 public class MetricsEntity {
 
     @Id
@@ -19,6 +30,7 @@ public class MetricsEntity {
     private String paymentStatus;
     private String shippingStatus;
 
+    @Builder.Default
     private LocalDateTime createdAt = LocalDateTime.now();
 
-}
\ No newline at end of file
+}
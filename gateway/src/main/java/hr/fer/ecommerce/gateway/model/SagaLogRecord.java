@@ -0,0 +1,41 @@
+package hr.fer.ecommerce.gateway.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// One row of the append-only saga_log table
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SagaLogRecord {
+
+    public enum Step {
+        SAGA,
+        ORDER,
+        PAYMENT,
+        SHIPMENT
+    }
+
+    public enum Event {
+        STARTED,
+        COMPLETED,
+        COMPENSATED,
+        COMPENSATION_FAILED,
+        ABORTED
+    }
+
+    private Long id;
+    private String sagaId;
+    private Step step;
+    private Event event;
+    private Long resourceId;    // order, payment or shipment ID once the step completed
+    private String payload;     // original request as JSON, only on SAGA STARTED
+
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,342 @@
+package hr.fer.ecommerce.gateway.orchestration;
+
+import hr.fer.ecommerce.gateway.service.LatencyMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// One run of a workflow declared as a DAG of steps. A step starts on its own participant thread once every step
+// it comes after has completed, so the run takes as long as its critical path. The first failed step skips the
+// steps not yet started and lets running ones finish, since an abandoned call may still have taken effect;
+// compensate() then undoes every completed step. An independent step fails alone and only skips its dependents.
+// Steps are timed and, when the run has a protocol, recorded in the latency metrics under their names.
+@Slf4j
+public class Orchestration {
+
+    public enum State {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        TIMED_OUT,
+        SKIPPED
+    }
+
+    private final String protocol;        // null: steps are timed but not recorded
+    private final Executor executor;
+    private final LatencyMetrics latencyMetrics;
+
+    private final List<Step<?>> steps = new ArrayList<>();
+    private final CompletableFuture<Void> cancelled = new CompletableFuture<>();
+    private boolean compensateConcurrently;
+    private boolean started;
+
+    Orchestration(String protocol, Executor executor, LatencyMetrics latencyMetrics) {
+        this.protocol = protocol;
+        this.executor = executor;
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    public <T> Step<T> step(String name, Supplier<T> action) {
+        checkNotStarted();
+        Step<T> step = new Step<>(name, steps.size(), action);
+        steps.add(step);
+        return step;
+    }
+
+    // By default a step is undone only after every step that came after it; with this all compensations start at once
+    public Orchestration compensateConcurrently() {
+        checkNotStarted();
+        compensateConcurrently = true;
+        return this;
+    }
+
+    // Returns once every step has settled, or throws the failure that cancelled the run as soon as it happens
+    public void run() {
+        checkNotStarted();
+        started = true;
+        steps.forEach(Step::schedule);
+
+        CompletableFuture<?> settled = CompletableFuture.allOf(steps.stream().map(step -> step.settled).toArray(CompletableFuture[]::new));
+        CompletableFuture.anyOf(settled, cancelled).exceptionally(e -> null).join();
+        if (cancelled.isCompletedExceptionally()) {
+            throw rethrowable(cancelled.exceptionNow());
+        }
+    }
+
+    // Waits for steps that were still running when the run was cancelled, so their results are undone too
+    public List<Compensation> compensate() {
+        Map<Step<?>, CompletableFuture<Compensation>> undone = new HashMap<>();
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            Step<?> step = steps.get(i);
+            List<CompletableFuture<?>> first = new ArrayList<>();
+            first.add(step.settled);
+            if (!compensateConcurrently) {
+                steps.stream()
+                        .filter(later -> later.dependencies.contains(step))
+                        .forEach(later -> first.add(undone.get(later)));
+            }
+            undone.put(step, CompletableFuture.allOf(first.toArray(CompletableFuture[]::new))
+                    .thenCompose(ignored -> step.compensate()));
+        }
+
+        // latest step first, the order the compensations are started in
+        List<Compensation> compensations = new ArrayList<>();
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            Compensation compensation = undone.get(steps.get(i)).join();
+            if (compensation != null) {
+                compensations.add(compensation);
+            }
+        }
+        return compensations;
+    }
+
+    // Longest chain of measured step latencies through the DAG
+    public long criticalPathMillis() {
+        Map<Step<?>, Long> finishedAt = new HashMap<>();
+        long longest = 0;
+        for (Step<?> step : steps) {
+            long startedAt = step.dependencies.stream().mapToLong(finishedAt::get).max().orElse(0);
+            long finished = startedAt + step.latencyMillis();
+            finishedAt.put(step, finished);
+            longest = Math.max(longest, finished);
+        }
+        return longest;
+    }
+
+    private void checkNotStarted() {
+        if (started) {
+            throw new IllegalStateException("Orchestration has already run");
+        }
+    }
+
+    private static RuntimeException rethrowable(Throwable e) {
+        if (e instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(e);
+    }
+
+    public record Compensation(String step, State state, long latencyMillis, Throwable error) {
+
+        public boolean isCompensated() {
+            return state == State.COMPLETED;
+        }
+    }
+
+    private record Outcome<T>(State state, T value, Throwable error, long latencyMillis) {
+    }
+
+    public class Step<T> {
+
+        private final String name;
+        private final int index;
+        private final Supplier<T> action;
+        private final List<Step<?>> dependencies = new ArrayList<>();
+        private Consumer<? super T> compensation;
+        private Duration timeout;
+        private boolean independent;
+
+        private final AtomicReference<Outcome<T>> outcome = new AtomicReference<>();
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final CompletableFuture<Void> settled = new CompletableFuture<>();
+        private volatile long startNanos;
+
+        private Step(String name, int index, Supplier<T> action) {
+            this.name = name;
+            this.index = index;
+            this.action = action;
+        }
+
+        // Only earlier steps of the same run, which keeps the graph acyclic
+        public Step<T> after(Step<?>... earlier) {
+            checkNotStarted();
+            for (Step<?> step : earlier) {
+                if (step.owner() != Orchestration.this || step.index >= index) {
+                    throw new IllegalArgumentException(name + " can only come after an earlier step of the same orchestration");
+                }
+                dependencies.add(step);
+            }
+            return this;
+        }
+
+        public Step<T> compensateWith(Consumer<? super T> compensation) {
+            checkNotStarted();
+            this.compensation = compensation;
+            return this;
+        }
+
+        // Bounds both the action and its compensation; a result that arrives later is compensated on arrival
+        public Step<T> timeout(Duration timeout) {
+            checkNotStarted();
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Step<T> independent() {
+            checkNotStarted();
+            this.independent = true;
+            return this;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public State state() {
+            Outcome<T> settledOutcome = outcome.get();
+            if (settledOutcome != null) {
+                return settledOutcome.state();
+            }
+            return startNanos == 0 ? State.PENDING : State.RUNNING;
+        }
+
+        public boolean isCompleted() {
+            return state() == State.COMPLETED;
+        }
+
+        // The action's result; read by later steps' actions, which only run once it is there
+        public T value() {
+            Outcome<T> settledOutcome = outcome.get();
+            if (settledOutcome == null || settledOutcome.state() != State.COMPLETED) {
+                throw new IllegalStateException(name + " has not completed");
+            }
+            return settledOutcome.value();
+        }
+
+        public Throwable error() {
+            Outcome<T> settledOutcome = outcome.get();
+            return settledOutcome == null ? null : settledOutcome.error();
+        }
+
+        public long latencyMillis() {
+            Outcome<T> settledOutcome = outcome.get();
+            return settledOutcome == null ? 0 : settledOutcome.latencyMillis();
+        }
+
+        private Orchestration owner() {
+            return Orchestration.this;
+        }
+
+        private void schedule() {
+            CompletableFuture.allOf(dependencies.stream().map(step -> step.result).toArray(CompletableFuture[]::new))
+                    .whenComplete((ignored, e) -> {
+                        if (e != null || cancelled.isDone()) {
+                            settle(State.SKIPPED, null, null);
+                            return;
+                        }
+                        try {
+                            executor.execute(this::execute);
+                        } catch (RejectedExecutionException rejected) {
+                            settle(State.FAILED, null, rejected);
+                        }
+                    });
+        }
+
+        private void execute() {
+            // cancelled while waiting for a thread
+            if (cancelled.isDone()) {
+                settle(State.SKIPPED, null, null);
+                return;
+            }
+
+            startNanos = System.nanoTime();
+            if (timeout != null) {
+                CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS, executor)
+                        .execute(() -> settle(State.TIMED_OUT, null,
+                                new TimeoutException("No response within " + timeout.toMillis() + " ms")));
+            }
+
+            T value;
+            try {
+                value = action.get();
+            } catch (Throwable e) {
+                settle(State.FAILED, null, e);
+                return;
+            }
+
+            if (!settle(State.COMPLETED, value, null)) {
+                compensateLate(value);
+            } else if (cancelled.isDone()) {
+                log.warn("{} completed after the orchestration was cancelled - it is compensated with the rest", name);
+            }
+        }
+
+        // The first outcome wins, and only it is timed; an action finishing after its timeout loses to it
+        private boolean settle(State state, T value, Throwable error) {
+            long nanos = startNanos == 0 ? 0 : System.nanoTime() - startNanos;
+            Outcome<T> settledOutcome = new Outcome<>(state, value, error, TimeUnit.NANOSECONDS.toMillis(nanos));
+            if (!outcome.compareAndSet(null, settledOutcome)) {
+                return false;
+            }
+            if (startNanos != 0 && protocol != null) {
+                latencyMetrics.record(protocol, name, nanos);
+            }
+            if (state == State.COMPLETED) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error != null ? error : new CancellationException(name + " skipped"));
+                if (error != null && !independent) {
+                    cancelled.completeExceptionally(error);
+                }
+            }
+            settled.complete(null);
+            return true;
+        }
+
+        // Nobody waits for a timed-out step any more, so its late result is undone here
+        private void compensateLate(T value) {
+            if (compensation == null) {
+                return;
+            }
+            log.warn("{} completed after timing out - compensating it", name);
+            try {
+                compensation.accept(value);
+            } catch (Exception e) {
+                log.error("Failed to compensate late {}: {}", name, e.getMessage());
+            }
+        }
+
+        private CompletableFuture<Compensation> compensate() {
+            if (compensation == null || state() != State.COMPLETED) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            T value = value();
+            long start = System.nanoTime();
+            CompletableFuture<Void> call = CompletableFuture.runAsync(() -> compensation.accept(value), executor);
+            if (timeout != null) {
+                call = call.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            return call.handle((ignored, e) -> {
+                long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (e == null) {
+                    return new Compensation(name, State.COMPLETED, latency, null);
+                }
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof TimeoutException) {
+                    return new Compensation(name, State.TIMED_OUT, latency,
+                            new TimeoutException("No response within " + timeout.toMillis() + " ms"));
+                }
+                return new Compensation(name, State.FAILED, latency, cause);
+            });
+        }
+    }
+}
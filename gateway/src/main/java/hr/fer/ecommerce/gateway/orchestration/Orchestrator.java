@@ -0,0 +1,26 @@
+package hr.fer.ecommerce.gateway.orchestration;
+
+import hr.fer.ecommerce.gateway.service.LatencyMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+
+// Steps run on the participant executor, which carries the request's deadline and trace to every step
+@Service
+@RequiredArgsConstructor
+public class Orchestrator {
+
+    private final ExecutorService participantExecutor;
+    private final LatencyMetrics latencyMetrics;
+
+    // Each step's latency is recorded under the protocol, with the step name as the metric step
+    public Orchestration orchestrate(String protocol) {
+        return new Orchestration(protocol, participantExecutor, latencyMetrics);
+    }
+
+    // Steps are timed for the caller but kept out of the latency metrics
+    public Orchestration orchestrate() {
+        return orchestrate(null);
+    }
+}
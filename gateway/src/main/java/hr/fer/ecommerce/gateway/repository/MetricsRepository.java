@@ -1,3 +1,6 @@
+package hr.fer.ecommerce.gateway.repository;
+
+import hr.fer.ecommerce.gateway.model.MetricsEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
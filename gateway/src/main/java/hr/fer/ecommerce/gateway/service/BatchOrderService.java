@@ -0,0 +1,153 @@
+package hr.fer.ecommerce.gateway.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.fer.ecommerce.gateway.config.BatchOrdersConfig;
+import hr.fer.ecommerce.gateway.dto.BatchOrderResult;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderRequest;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderResponse;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Runs a batch of orders through the saga or 2PC with bounded parallelism. Items are read from the body one
+// at a time (a JSON array or NDJSON), so a batch starts running before it has been fully parsed, and each
+// result is written as an NDJSON line as soon as its order finishes. A failed item never stops the batch.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchOrderService {
+
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final SagaService sagaService;
+    private final TwoPhaseCommitService twoPhaseCommitService;
+    private final ExecutorService participantExecutor;
+    private final BatchOrdersConfig batchOrdersConfig;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    public ResponseBodyEmitter placeOrdersWithSaga(InputStream body) {
+        return placeOrders(MetricsWriter.SAGA, body, sagaService::placeOrder);
+    }
+
+    public ResponseBodyEmitter placeOrdersWith2PC(InputStream body) {
+        return placeOrders(MetricsWriter.TWO_PHASE_COMMIT, body, twoPhaseCommitService::placeOrderWith2PC);
+    }
+
+    // The emitter goes back to the servlet thread straight away, so the request thread is not held for the batch
+    // and each result is flushed to the client the moment its order finishes
+    private ResponseBodyEmitter placeOrders(String protocol, InputStream body,
+                                            Function<PlaceOrderRequest, PlaceOrderResponse> placeOrder) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchOrdersConfig.getTimeout().toMillis());
+        try {
+            participantExecutor.execute(() -> admit(protocol, body, placeOrder, emitter));
+        } catch (RejectedExecutionException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    // Reads the body one item at a time and admits items while slots are free; runs off the request thread,
+    // which async processing keeps the body readable for
+    private void admit(String protocol, InputStream body, Function<PlaceOrderRequest, PlaceOrderResponse> placeOrder,
+                       ResponseBodyEmitter emitter) {
+        Semaphore slots = new Semaphore(batchOrdersConfig.getParallelism());
+        List<CompletableFuture<Void>> items = new ArrayList<>();
+        int index = 0;
+
+        try (MappingIterator<PlaceOrderRequest> requests = objectMapper.readerFor(PlaceOrderRequest.class).readValues(body)) {
+            while (requests.hasNextValue()) {
+                if (index == batchOrdersConfig.getMaxItems()) {
+                    send(emitter, failed(index, "Batch limit of " + batchOrdersConfig.getMaxItems() + " orders exceeded, remaining orders were not read"));
+                    break;
+                }
+
+                PlaceOrderRequest request = requests.nextValue();
+                String invalid = validate(request);
+                if (invalid != null) {
+                    send(emitter, failed(index++, invalid));
+                    continue;
+                }
+
+                slots.acquire();
+                items.add(runItem(index++, request, placeOrder, emitter, slots));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(emitter, failed(index, "Batch interrupted"));
+        } catch (Exception e) {
+            // the stream can not be resynchronised after malformed JSON, so reading stops here
+            send(emitter, failed(index, "Malformed order: " + e.getMessage()));
+        }
+
+        log.info("{} batch of {} orders accepted", protocol, index);
+        CompletableFuture.allOf(items.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, e) -> emitter.complete());
+    }
+
+    private CompletableFuture<Void> runItem(int index, PlaceOrderRequest request,
+                                            Function<PlaceOrderRequest, PlaceOrderResponse> placeOrder,
+                                            ResponseBodyEmitter emitter, Semaphore slots) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                PlaceOrderResponse response = placeOrder.apply(request);
+                send(emitter, BatchOrderResult.builder()
+                        .index(index)
+                        .success(response.isSuccess())
+                        .response(response)
+                        .build());
+            } catch (Exception e) {
+                log.error("Batch order {} failed: {}", index, e.getMessage(), e);
+                send(emitter, failed(index, "Unexpected error: " + e.getMessage()));
+            } finally {
+                slots.release();
+            }
+        }, participantExecutor);
+    }
+
+    private String validate(PlaceOrderRequest request) {
+        Set<ConstraintViolation<PlaceOrderRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private BatchOrderResult failed(int index, String error) {
+        return BatchOrderResult.builder()
+                .index(index)
+                .success(false)
+                .error(error)
+                .build();
+    }
+
+    // One send per line, so lines written by concurrent items never interleave
+    private void send(ResponseBodyEmitter emitter, BatchOrderResult result) {
+        try {
+            emitter.send(objectMapper.writeValueAsString(result) + "\n", NDJSON);
+        } catch (IOException | IllegalStateException e) {
+            // the client disconnected; the remaining orders still finish, only their results are lost
+            log.warn("Failed to stream batch result {}: {}", result.getIndex(), e.getMessage());
+        }
+    }
+}
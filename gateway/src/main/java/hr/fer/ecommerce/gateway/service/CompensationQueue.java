@@ -0,0 +1,388 @@
+package hr.fer.ecommerce.gateway.service;
+
+import hr.fer.ecommerce.gateway.client.ConcurrencyLimitExceededException;
+import hr.fer.ecommerce.gateway.client.Downstream;
+import hr.fer.ecommerce.gateway.client.MicroserviceClient;
+import hr.fer.ecommerce.gateway.config.CompensationQueueConfig;
+import hr.fer.ecommerce.gateway.dto.CompensationQueueStats;
+import hr.fer.ecommerce.gateway.model.CompensationTask;
+import hr.fer.ecommerce.gateway.model.CompensationTask.Action;
+import hr.fer.ecommerce.gateway.model.CompensationTask.Status;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Durable retry queue for compensations and 2PC aborts. The request thread only inserts a row, so the client
+// is not kept waiting on a struggling service; with attempt-inline it first makes one attempt itself. A poller
+// retries due rows with exponential backoff and jitter, a few at a time per downstream service, and moves
+// a row to the dead letters once it runs out of attempts. Every compensation is idempotent downstream,
+// so retrying one that did go through is harmless and a resource that is already gone counts as undone.
+// Commits of an early-acknowledged 2PC transaction run through here as well: once decided they have to go
+// through eventually, and a repeated commit is acknowledged like the first.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CompensationQueue {
+
+    // A claimed row that has not reported back by then (the gateway died mid-call) is picked up again
+    private static final Duration CLAIM = Duration.ofMinutes(1);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final RowMapper<CompensationTask> ROW_MAPPER = (rs, rowNum) -> CompensationTask.builder()
+            .id(rs.getLong("id"))
+            .action(Action.valueOf(rs.getString("action")))
+            .resourceId(rs.getLong("resource_id"))
+            .reference(rs.getString("reference"))
+            .status(Status.valueOf(rs.getString("status")))
+            .attempts(rs.getInt("attempts"))
+            .nextAttemptAt(rs.getTimestamp("next_attempt_at").toLocalDateTime())
+            .lastError(rs.getString("last_error"))
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .updatedAt(rs.getTimestamp("updated_at").toLocalDateTime())
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final MicroserviceClient microserviceClient;
+    private final CoordinatorLog coordinatorLog;
+    private final CompensationQueueConfig compensationQueueConfig;
+    private final ExecutorService participantExecutor;
+
+    private final Map<Downstream, Semaphore> permits = new EnumMap<>(Downstream.class);
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+
+    // Throws CompensationQueuedException once the queue has taken over a failed compensation
+    public void compensate(Action action, Long resourceId, String reference) {
+        if (!compensationQueueConfig.isAttemptInline()) {
+            enqueue(action, resourceId, reference, 0, LocalDateTime.now(), null);
+            throw new CompensationQueuedException(describe(action, resourceId) + " queued", null);
+        }
+
+        try {
+            call(action, resourceId);
+        } catch (RuntimeException e) {
+            if (alreadyUndone(e)) {
+                return;
+            }
+            enqueue(action, resourceId, reference, rejectedLocally(e) ? 0 : 1, LocalDateTime.now().plus(backoff(1)), e);
+            log.warn("{} failed, queued for retry: {}", describe(action, resourceId), e.getMessage());
+            throw new CompensationQueuedException(describe(action, resourceId) + " failed, queued for retry: " + e.getMessage(), e);
+        }
+    }
+
+    // Queues a call the caller is about to make itself. The row starts out claimed, so the poller only picks it
+    // up if the caller never reports back through attempt().
+    public CompensationTask enqueueClaimed(Action action, Long resourceId, String reference) {
+        LocalDateTime now = LocalDateTime.now();
+        CompensationTask task = CompensationTask.builder()
+                .action(action)
+                .resourceId(resourceId)
+                .reference(reference)
+                .status(Status.PENDING)
+                .nextAttemptAt(now.plus(CLAIM))
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        task.setId(enqueue(action, resourceId, reference, 0, task.getNextAttemptAt(), null));
+        return task;
+    }
+
+    // Makes the next attempt at a claimed task; a failure is rescheduled with backoff like any other retry
+    public boolean attempt(CompensationTask task) {
+        return retry(task);
+    }
+
+    public List<CompensationTask> tasks(String reference) {
+        return jdbcTemplate.query("SELECT * FROM compensation_queue WHERE reference = ? ORDER BY id", ROW_MAPPER, reference);
+    }
+
+    @Scheduled(fixedDelayString = "${compensation-queue.poll-interval:1s}")
+    public void poll() {
+        for (Downstream target : Downstream.values()) {
+            List<Action> actions = Arrays.stream(Action.values()).filter(action -> action.target() == target).toList();
+            if (actions.isEmpty()) {
+                continue;
+            }
+            Semaphore targetPermits = permits(target);
+            int free = targetPermits.availablePermits();
+            if (free == 0) {
+                continue;
+            }
+
+            List<CompensationTask> due;
+            try {
+                due = claimDue(actions, Math.min(free, compensationQueueConfig.getBatchSize()));
+            } catch (Exception e) {
+                log.warn("Compensation queue poll for {} failed: {}", target, e.getMessage());
+                continue;
+            }
+
+            for (CompensationTask task : due) {
+                if (!targetPermits.tryAcquire()) {
+                    break;
+                }
+                try {
+                    participantExecutor.execute(() -> {
+                        try {
+                            retry(task);
+                        } finally {
+                            targetPermits.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // the claim runs out and the row is picked up again
+                    targetPermits.release();
+                }
+            }
+        }
+    }
+
+    public List<CompensationTask> deadLetters(int limit) {
+        return jdbcTemplate.query("SELECT * FROM compensation_queue WHERE status = ? ORDER BY updated_at DESC LIMIT ?",
+                ROW_MAPPER, Status.DEAD.name(), limit);
+    }
+
+    // Gives a dead letter a fresh set of attempts, starting now
+    public boolean retryDeadLetter(Long id) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int updated = jdbcTemplate.update("UPDATE compensation_queue SET status = ?, attempts = 0, next_attempt_at = ?, updated_at = ? " +
+                "WHERE id = ? AND status = ?", Status.PENDING.name(), now, now, id, Status.DEAD.name());
+        if (updated > 0) {
+            log.info("Compensation {} moved back from the dead letters", id);
+        }
+        return updated > 0;
+    }
+
+    public CompensationQueueStats stats() {
+        Map<String, Integer> byStatus = jdbcTemplate.query("SELECT status, COUNT(*) AS tasks FROM compensation_queue GROUP BY status",
+                rs -> {
+                    Map<String, Integer> counts = new HashMap<>();
+                    while (rs.next()) {
+                        counts.put(rs.getString("status"), rs.getInt("tasks"));
+                    }
+                    return counts;
+                });
+
+        int inFlight = 0;
+        synchronized (permits) {
+            for (Semaphore targetPermits : permits.values()) {
+                inFlight += compensationQueueConfig.getPerTargetConcurrency() - targetPermits.availablePermits();
+            }
+        }
+
+        return CompensationQueueStats.builder()
+                .pending(byStatus.getOrDefault(Status.PENDING.name(), 0))
+                .deadLetters(byStatus.getOrDefault(Status.DEAD.name(), 0))
+                .done(byStatus.getOrDefault(Status.DONE.name(), 0))
+                .inFlight(inFlight)
+                .enqueued(enqueued.get())
+                .succeeded(succeeded.get())
+                .failedAttempts(failedAttempts.get())
+                .deadLettered(deadLettered.get())
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${compensation-queue.retention:1h}", initialDelayString = "${compensation-queue.retention:1h}")
+    public void purgeDone() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(compensationQueueConfig.getRetention());
+        int deleted = jdbcTemplate.update("DELETE FROM compensation_queue WHERE status = ? AND updated_at < ?",
+                Status.DONE.name(), Timestamp.valueOf(cutoff));
+        if (deleted > 0) {
+            log.info("Purged {} finished compensations", deleted);
+        }
+    }
+
+    // Only the poller claims, so pushing the due time out is enough to keep a row from being picked twice
+    private List<CompensationTask> claimDue(List<Action> actions, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<CompensationTask> due = namedParameterJdbcTemplate.query("""
+                        SELECT * FROM compensation_queue
+                        WHERE status = :status AND next_attempt_at <= :now AND action IN (:actions)
+                        ORDER BY next_attempt_at
+                        LIMIT :limit
+                        """,
+                new MapSqlParameterSource()
+                        .addValue("status", Status.PENDING.name())
+                        .addValue("now", Timestamp.valueOf(now))
+                        .addValue("actions", actions.stream().map(Action::name).toList())
+                        .addValue("limit", limit),
+                ROW_MAPPER);
+
+        if (!due.isEmpty()) {
+            namedParameterJdbcTemplate.update("UPDATE compensation_queue SET next_attempt_at = :claimedUntil WHERE id IN (:ids)",
+                    new MapSqlParameterSource()
+                            .addValue("claimedUntil", Timestamp.valueOf(now.plus(CLAIM)))
+                            .addValue("ids", due.stream().map(CompensationTask::getId).toList()));
+        }
+        return due;
+    }
+
+    private boolean retry(CompensationTask task) {
+        int attempt = task.getAttempts() + 1;
+        try {
+            call(task.getAction(), task.getResourceId());
+        } catch (RuntimeException e) {
+            if (rejectedLocally(e)) {
+                postpone(task, e);
+                return false;
+            }
+            if (task.getAction().isCommit() || !alreadyUndone(e)) {
+                failed(task, attempt, e);
+                return false;
+            }
+        }
+
+        try {
+            jdbcTemplate.update("UPDATE compensation_queue SET status = ?, attempts = ?, updated_at = ? WHERE id = ?",
+                    Status.DONE.name(), attempt, Timestamp.valueOf(LocalDateTime.now()), task.getId());
+        } catch (Exception e) {
+            // the claim runs out and the retry is repeated, which the downstream service tolerates
+            log.warn("Failed to mark compensation {} done: {}", task.getId(), e.getMessage());
+            return true;
+        }
+        succeeded.incrementAndGet();
+        log.info("{} went through on attempt {}", describe(task.getAction(), task.getResourceId()), attempt);
+        if (task.getAction().isCommit()) {
+            completeIfCommitted(task.getReference());
+        }
+        return true;
+    }
+
+    // Each commit row is marked done before this check, so whichever finishes last sees them all done
+    private void completeIfCommitted(String transactionId) {
+        Integer open = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM compensation_queue WHERE reference = ? " +
+                        "AND action IN (?, ?, ?) AND status <> ?", Integer.class, transactionId,
+                Action.COMMIT_ORDER.name(), Action.COMMIT_PAYMENT.name(), Action.COMMIT_SHIPMENT.name(), Status.DONE.name());
+        if (open != null && open == 0) {
+            coordinatorLog.markCompleted(transactionId);
+        }
+    }
+
+    private void failed(CompensationTask task, int attempt, RuntimeException error) {
+        failedAttempts.incrementAndGet();
+        LocalDateTime now = LocalDateTime.now();
+        String description = describe(task.getAction(), task.getResourceId());
+
+        if (attempt >= compensationQueueConfig.getMaxAttempts()) {
+            jdbcTemplate.update("UPDATE compensation_queue SET status = ?, attempts = ?, last_error = ?, updated_at = ? WHERE id = ?",
+                    Status.DEAD.name(), attempt, truncate(error.getMessage()), Timestamp.valueOf(now), task.getId());
+            deadLettered.incrementAndGet();
+            log.error("{} failed {} times, moved to the dead letters: {}", description, attempt, error.getMessage());
+            return;
+        }
+
+        Duration delay = backoff(attempt);
+        jdbcTemplate.update("UPDATE compensation_queue SET attempts = ?, next_attempt_at = ?, last_error = ?, updated_at = ? WHERE id = ?",
+                attempt, Timestamp.valueOf(now.plus(delay)), truncate(error.getMessage()), Timestamp.valueOf(now), task.getId());
+        log.warn("{} failed on attempt {}, retrying in {} ms: {}", description, attempt, delay.toMillis(), error.getMessage());
+    }
+
+    // The call never left the gateway, so the row keeps its attempts and only waits out another backoff
+    private void postpone(CompensationTask task, RuntimeException error) {
+        LocalDateTime now = LocalDateTime.now();
+        Duration delay = backoff(Math.max(task.getAttempts(), 1));
+        jdbcTemplate.update("UPDATE compensation_queue SET next_attempt_at = ?, last_error = ?, updated_at = ? WHERE id = ?",
+                Timestamp.valueOf(now.plus(delay)), truncate(error.getMessage()), Timestamp.valueOf(now), task.getId());
+        log.info("{} held back by the gateway, retrying in {} ms: {}",
+                describe(task.getAction(), task.getResourceId()), delay.toMillis(), error.getMessage());
+    }
+
+    private Long enqueue(Action action, Long resourceId, String reference, int attempts, LocalDateTime nextAttemptAt, Exception error) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("INSERT INTO compensation_queue (action, resource_id, " +
+                    "reference, status, attempts, next_attempt_at, last_error, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", new String[]{"id"});
+            statement.setString(1, action.name());
+            statement.setLong(2, resourceId);
+            statement.setString(3, reference);
+            statement.setString(4, Status.PENDING.name());
+            statement.setInt(5, attempts);
+            statement.setTimestamp(6, Timestamp.valueOf(nextAttemptAt));
+            statement.setString(7, error != null ? truncate(error.getMessage()) : null);
+            statement.setTimestamp(8, now);
+            statement.setTimestamp(9, now);
+            return statement;
+        }, keyHolder);
+        enqueued.incrementAndGet();
+        return keyHolder.getKey().longValue();
+    }
+
+    // Exponential in the attempts made so far; the top share of each delay is randomised
+    private Duration backoff(int attempts) {
+        double delay = Math.min(compensationQueueConfig.getMaxBackoff().toMillis(),
+                compensationQueueConfig.getInitialBackoff().toMillis() * Math.pow(compensationQueueConfig.getBackoffMultiplier(), attempts - 1));
+        return Duration.ofMillis((long) (delay * (1 - compensationQueueConfig.getJitter() * ThreadLocalRandom.current().nextDouble())));
+    }
+
+    private void call(Action action, Long resourceId) {
+        switch (action) {
+            case CANCEL_ORDER -> microserviceClient.cancelOrder(resourceId);
+            case REFUND_PAYMENT -> microserviceClient.refundPayment(resourceId);
+            case CANCEL_SHIPMENT -> microserviceClient.cancelShipment(resourceId);
+            case ABORT_ORDER -> microserviceClient.abortOrder(resourceId);
+            case ABORT_PAYMENT -> microserviceClient.abortPayment(resourceId);
+            case ABORT_SHIPMENT -> microserviceClient.abortShipment(resourceId);
+            case COMMIT_ORDER -> microserviceClient.commitOrder(resourceId);
+            case COMMIT_PAYMENT -> microserviceClient.commitPayment(resourceId);
+            case COMMIT_SHIPMENT -> microserviceClient.commitShipment(resourceId);
+        }
+    }
+
+    // Cancelled orders and refunded payments are deleted, so a missing resource was already undone
+    private boolean alreadyUndone(RuntimeException e) {
+        return e.getCause() instanceof HttpClientErrorException.NotFound;
+    }
+
+    // An open circuit breaker or a full concurrency limit turned the call away before it was sent
+    private static boolean rejectedLocally(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CallNotPermittedException || cause instanceof ConcurrencyLimitExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Semaphore permits(Downstream target) {
+        synchronized (permits) {
+            return permits.computeIfAbsent(target, ignored -> new Semaphore(compensationQueueConfig.getPerTargetConcurrency()));
+        }
+    }
+
+    private static String describe(Action action, Long resourceId) {
+        return action.name().toLowerCase().replace('_', ' ') + " " + resourceId;
+    }
+
+    private static String truncate(String message) {
+        return message == null || message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
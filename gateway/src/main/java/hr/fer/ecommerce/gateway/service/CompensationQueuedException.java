@@ -0,0 +1,8 @@
+package hr.fer.ecommerce.gateway.service;
+
+// The compensation failed on the request thread and is now owned by the compensation queue
+public class CompensationQueuedException extends RuntimeException {
+    public CompensationQueuedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
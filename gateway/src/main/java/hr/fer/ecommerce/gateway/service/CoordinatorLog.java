@@ -0,0 +1,116 @@
+package hr.fer.ecommerce.gateway.service;
+
+import hr.fer.ecommerce.gateway.dto.TwoPhaseCommitContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 2PC coordinator decision log with presumed abort: only COMMIT decisions are written, and the write
+// must succeed before the first commit message is sent. A prepared participant without a logged
+// decision is therefore safe to abort once no running transaction owns it.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CoordinatorLog {
+
+    public static final String COMMIT = "COMMIT";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    // orders of transactions this gateway is still driving; the resolver leaves them alone
+    private final Set<Long> activeOrders = ConcurrentHashMap.newKeySet();
+
+    public String begin() {
+        return UUID.randomUUID().toString();
+    }
+
+    public void register(Long orderId) {
+        activeOrders.add(orderId);
+    }
+
+    public void release(TwoPhaseCommitContext context) {
+        if (context.getOrder() != null) {
+            release(context.getOrder().getId());
+        }
+    }
+
+    public void release(Long orderId) {
+        activeOrders.remove(orderId);
+    }
+
+    public boolean isActive(Long orderId) {
+        return activeOrders.contains(orderId);
+    }
+
+    // Forced write: the insert commits (and H2 flushes it) before this returns, otherwise it throws
+    public void logCommitDecision(TwoPhaseCommitContext context) {
+        jdbcTemplate.update("INSERT INTO coordinator_log (transaction_id, decision, order_id, payment_id, shipment_id, decided_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)",
+                context.getTransactionId(), COMMIT,
+                context.getOrder().getId(), context.getPayment().getId(), context.getShipment().getId(),
+                Timestamp.valueOf(LocalDateTime.now()));
+        log.info("2PC: Commit decision logged for transaction {}", context.getTransactionId());
+    }
+
+    // Only needed to keep the pending count accurate; a missed update is completed by the resolver
+    public void markCompleted(String transactionId) {
+        try {
+            jdbcTemplate.update("UPDATE coordinator_log SET completed_at = ? WHERE transaction_id = ?",
+                    Timestamp.valueOf(LocalDateTime.now()), transactionId);
+        } catch (Exception e) {
+            log.warn("Failed to mark transaction {} completed: {}", transactionId, e.getMessage());
+        }
+    }
+
+    public Set<Long> committedOrders(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT order_id FROM coordinator_log WHERE decision = 'COMMIT' AND order_id IN (:orderIds)",
+                new MapSqlParameterSource("orderIds", orderIds), Long.class));
+    }
+
+    // Every participant of a decision taken before the cutoff was visible to the resolver's scan,
+    // so decisions whose orders were not left unresolved are complete
+    public int completeDecidedBefore(LocalDateTime cutoff, Collection<Long> unresolvedOrders) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("now", Timestamp.valueOf(LocalDateTime.now()))
+                .addValue("cutoff", Timestamp.valueOf(cutoff));
+        String sql = "UPDATE coordinator_log SET completed_at = :now WHERE completed_at IS NULL AND decided_at < :cutoff";
+        if (!unresolvedOrders.isEmpty()) {
+            sql += " AND order_id NOT IN (:unresolved)";
+            params.addValue("unresolved", unresolvedOrders);
+        }
+        return namedParameterJdbcTemplate.update(sql, params);
+    }
+
+    public Optional<Decision> decision(String transactionId) {
+        return jdbcTemplate.query("SELECT * FROM coordinator_log WHERE transaction_id = ?",
+                (rs, rowNum) -> new Decision(rs.getString("transaction_id"), rs.getLong("order_id"),
+                        rs.getTimestamp("decided_at").toLocalDateTime(),
+                        rs.getTimestamp("completed_at") != null ? rs.getTimestamp("completed_at").toLocalDateTime() : null),
+                transactionId).stream().findFirst();
+    }
+
+    public long pendingDecisions() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM coordinator_log WHERE completed_at IS NULL", Long.class);
+        return count != null ? count : 0;
+    }
+
+    public record Decision(String transactionId, Long orderId, LocalDateTime decidedAt, LocalDateTime completedAt) {
+    }
+}
@@ -0,0 +1,7 @@
+package hr.fer.ecommerce.gateway.service;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super("Idempotency key " + idempotencyKey + " was already used for a different request");
+    }
+}
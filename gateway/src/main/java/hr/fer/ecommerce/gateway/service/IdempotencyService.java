@@ -0,0 +1,164 @@
+package hr.fer.ecommerce.gateway.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.fer.ecommerce.gateway.config.IdempotencyConfig;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderRequest;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+// Idempotency-Key support for order placement. The first request with a key runs the order; a retry with
+// the same key waits for that run if it is still in flight, or gets its stored response, and never reaches
+// the downstream services. Every finished response is stored, failed ones included, because a failed saga
+// has already been compensated; a client that wants to try again sends a new key.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService {
+
+    private final IdempotencyConfig idempotencyConfig;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Insertion ordered, so the eldest entry is the oldest key; guarded by its own monitor
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public Result execute(String protocol, String idempotencyKey, PlaceOrderRequest request,
+                          Supplier<PlaceOrderResponse> placeOrder) {
+        String key = protocol + ":" + idempotencyKey;
+        String requestHash = hash(request);
+
+        Entry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null || entry.isExpired(idempotencyConfig)) {
+                entry = new Entry(requestHash, new CompletableFuture<>(), LocalDateTime.now());
+                entries.put(key, entry);
+                evictFinished();
+                owner = true;
+            }
+        }
+
+        if (!entry.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReusedException(idempotencyKey);
+        }
+
+        if (!owner) {
+            log.info("Replaying {} order for idempotency key {}", protocol, idempotencyKey);
+            try {
+                return new Result(entry.response().join(), true);
+            } catch (CompletionException e) {
+                // the first run's own exception, so the retry is answered the way the first request was
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            PlaceOrderResponse stored = idempotencyConfig.isPersist() ? load(key, requestHash, idempotencyKey) : null;
+            if (stored != null) {
+                entry.response().complete(stored);
+                return new Result(stored, true);
+            }
+
+            PlaceOrderResponse response = placeOrder.get();
+            entry.response().complete(response);
+            if (idempotencyConfig.isPersist()) {
+                store(key, requestHash, response);
+            }
+            return new Result(response, false);
+        } catch (RuntimeException e) {
+            // nothing was stored, so waiting retries fail too and the next one runs the order again
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            entry.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.ttl:1h}")
+    public void purgeExpired() {
+        synchronized (entries) {
+            entries.values().removeIf(entry -> entry.isExpired(idempotencyConfig) && entry.response().isDone());
+        }
+        if (idempotencyConfig.isPersist()) {
+            jdbcTemplate.update("DELETE FROM idempotency_key WHERE created_at < ?",
+                    Timestamp.valueOf(LocalDateTime.now().minus(idempotencyConfig.getTtl())));
+        }
+    }
+
+    // Oldest finished entries go first. An in-flight entry stays, or a retry of it would run the order a second
+    // time, so the map can go over the limit while more orders than that are in flight.
+    private void evictFinished() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > idempotencyConfig.getMaxEntries() && eldest.hasNext()) {
+            if (eldest.next().response().isDone()) {
+                eldest.remove();
+            }
+        }
+    }
+
+    private PlaceOrderResponse load(String key, String requestHash, String idempotencyKey) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT request_hash, response FROM idempotency_key WHERE idempotency_key = ? AND created_at >= ?",
+                key, Timestamp.valueOf(LocalDateTime.now().minus(idempotencyConfig.getTtl())));
+        if (rows.isEmpty()) {
+            return null;
+        }
+        if (!requestHash.equals(rows.getFirst().get("request_hash"))) {
+            throw new IdempotencyKeyReusedException(idempotencyKey);
+        }
+        try {
+            return objectMapper.readValue((String) rows.getFirst().get("response"), PlaceOrderResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for idempotency key " + idempotencyKey + " is unreadable", e);
+        }
+    }
+
+    // The order already ran, so a failed write is only logged; the in-memory entry still covers retries
+    private void store(String key, String requestHash, PlaceOrderResponse response) {
+        try {
+            jdbcTemplate.update("MERGE INTO idempotency_key (idempotency_key, request_hash, response, created_at) KEY (idempotency_key) VALUES (?, ?, ?, ?)",
+                    key, requestHash, objectMapper.writeValueAsString(response), Timestamp.valueOf(LocalDateTime.now()));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Failed to store response for idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+
+    private String hash(PlaceOrderRequest request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to hash order request", e);
+        }
+    }
+
+    public record Result(PlaceOrderResponse response, boolean replayed) {
+    }
+
+    private record Entry(String requestHash, CompletableFuture<PlaceOrderResponse> response, LocalDateTime createdAt) {
+
+        boolean isExpired(IdempotencyConfig config) {
+            return createdAt.plus(config.getTtl()).isBefore(LocalDateTime.now());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package hr.fer.ecommerce.gateway.service;
+
+import hr.fer.ecommerce.gateway.client.MicroserviceClient;
+import hr.fer.ecommerce.gateway.config.TwoPhaseCommitConfig;
+import hr.fer.ecommerce.gateway.dto.InDoubtResolutionStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Finds reservations left prepared by a crashed or timed-out 2PC transaction and finishes them:
+// a logged COMMIT decision is replayed, anything else is aborted (presumed abort).
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InDoubtTransactionResolver {
+
+    private static final String ORDER_PREPARED = "PREPARED";
+    private static final String PAYMENT_PREPARED = "PRE_AUTHORIZED";
+    private static final String SHIPMENT_PREPARED = "RESERVED";
+
+    private final MicroserviceClient microserviceClient;
+    private final CoordinatorLog coordinatorLog;
+    private final TwoPhaseCommitConfig twoPhaseCommitConfig;
+    private final LatencyMetrics latencyMetrics;
+
+    private final AtomicLong committed = new AtomicLong();
+    private final AtomicLong aborted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile Scan lastScan = new Scan(null, false, 0, 0, 0);
+
+    @Scheduled(fixedDelayString = "${two-phase-commit.resolver-interval:10s}",
+            initialDelayString = "${two-phase-commit.resolver-interval:10s}")
+    public void resolve() {
+        LocalDateTime scanStart = LocalDateTime.now();
+        LocalDateTime cutoff = scanStart.minus(twoPhaseCommitConfig.getInDoubtTimeout());
+
+        List<InDoubt> orders;
+        List<InDoubt> payments;
+        List<InDoubt> shipments;
+        try {
+            orders = inDoubt(microserviceClient.findOrdersByStatus(ORDER_PREPARED).stream()
+                    .map(order -> new InDoubt(Participant.ORDER, order.getId(), order.getId(), order.getCreatedAt())), cutoff);
+            payments = inDoubt(microserviceClient.findPaymentsByStatus(PAYMENT_PREPARED).stream()
+                    .map(payment -> new InDoubt(Participant.PAYMENT, payment.getId(), payment.getOrderId(), payment.getCreatedAt())), cutoff);
+            shipments = inDoubt(microserviceClient.findShipmentsByStatus(SHIPMENT_PREPARED).stream()
+                    .map(shipment -> new InDoubt(Participant.SHIPMENT, shipment.getId(), shipment.getOrderId(), shipment.getCreatedAt())), cutoff);
+        } catch (Exception e) {
+            // without a complete scan no decision may be marked completed
+            log.warn("In-doubt scan failed: {}", e.getMessage());
+            lastScan = new Scan(scanStart, true, 0, 0, 0);
+            return;
+        }
+
+        List<InDoubt> all = Stream.of(orders, payments, shipments).flatMap(List::stream).toList();
+        Set<Long> commitDecided = coordinatorLog.committedOrders(all.stream().map(InDoubt::orderId).collect(Collectors.toSet()));
+        Set<Long> unresolved = new HashSet<>();
+
+        for (InDoubt participant : all) {
+            boolean commit = commitDecided.contains(participant.orderId());
+            if (!resolve(participant, commit)) {
+                unresolved.add(participant.orderId());
+            }
+        }
+
+        int completed = coordinatorLog.completeDecidedBefore(cutoff, unresolved);
+        if (!all.isEmpty() || completed > 0) {
+            log.info("In-doubt scan resolved {} of {} participants, {} decisions completed",
+                    all.size() - unresolved.size(), all.size(), completed);
+        }
+
+        lastScan = new Scan(scanStart, false, orders.size(), payments.size(), shipments.size());
+    }
+
+    public InDoubtResolutionStats stats() {
+        Scan scan = lastScan;
+        return InDoubtResolutionStats.builder()
+                .lastScanAt(scan.at())
+                .lastScanFailed(scan.failed())
+                .inDoubtOrders(scan.orders())
+                .inDoubtPayments(scan.payments())
+                .inDoubtShipments(scan.shipments())
+                .pendingDecisions(coordinatorLog.pendingDecisions())
+                .committed(committed.get())
+                .aborted(aborted.get())
+                .failed(failed.get())
+                .build();
+    }
+
+    // Reservations of transactions still running here, or young enough to belong to a prepare in flight, are skipped
+    private List<InDoubt> inDoubt(Stream<InDoubt> prepared, LocalDateTime cutoff) {
+        return prepared
+                .filter(participant -> participant.preparedAt() != null && participant.preparedAt().isBefore(cutoff))
+                .filter(participant -> participant.orderId() == null || !coordinatorLog.isActive(participant.orderId()))
+                .toList();
+    }
+
+    private boolean resolve(InDoubt participant, boolean commit) {
+        Consumer<Long> decision = switch (participant.participant()) {
+            case ORDER -> commit ? microserviceClient::commitOrder : microserviceClient::abortOrder;
+            case PAYMENT -> commit ? microserviceClient::commitPayment : microserviceClient::abortPayment;
+            case SHIPMENT -> commit ? microserviceClient::commitShipment : microserviceClient::abortShipment;
+        };
+
+        try {
+            decision.accept(participant.id());
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            log.error("Failed to {} in-doubt {} {}: {}", commit ? "commit" : "abort",
+                    participant.participant(), participant.id(), e.getMessage());
+            return false;
+        }
+
+        (commit ? committed : aborted).incrementAndGet();
+        long inDoubtNanos = Duration.between(participant.preparedAt(), LocalDateTime.now()).toNanos();
+        long inDoubtMs = latencyMetrics.record(MetricsWriter.TWO_PHASE_COMMIT, LatencyMetrics.RESOLUTION, inDoubtNanos);
+        log.warn("2PC: In-doubt {} {} of order {} {} after {} ms", participant.participant(), participant.id(),
+                participant.orderId(), commit ? "committed" : "aborted", inDoubtMs);
+        return true;
+    }
+
+    private enum Participant {
+        ORDER,
+        PAYMENT,
+        SHIPMENT
+    }
+
+    private record InDoubt(Participant participant, Long id, Long orderId, LocalDateTime preparedAt) {
+    }
+
+    private record Scan(LocalDateTime at, boolean failed, int orders, int payments, int shipments) {
+    }
+}
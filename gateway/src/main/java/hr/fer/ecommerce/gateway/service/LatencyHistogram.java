@@ -0,0 +1,96 @@
+package hr.fer.ecommerce.gateway.service;
+
+import hr.fer.ecommerce.gateway.dto.LatencySnapshot;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear histogram in the style of HdrHistogram: every power of two is split into 64 linear
+// sub-buckets (about 1.5% relative error) and recording is a single atomic increment, no locks.
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int HALF_SUB_BUCKET_COUNT = 1 << (SUB_BUCKET_BITS - 1);
+
+    // 2^41 ns is about 36 minutes; anything longer lands in the last bucket
+    private static final long MAX_TRACKABLE = (1L << 41) - 1;
+    private static final int BUCKET_COUNT = indexOf(MAX_TRACKABLE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(Math.min(value, MAX_TRACKABLE)));
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    static LatencySnapshot snapshot(Collection<LatencyHistogram> histograms) {
+        long[] merged = new long[BUCKET_COUNT];
+        long total = 0;
+        long totalSum = 0;
+        long totalMax = 0;
+
+        for (LatencyHistogram histogram : histograms) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long count = histogram.counts.get(i);
+                merged[i] += count;
+                total += count;
+            }
+            totalSum += histogram.sum.sum();
+            totalMax = Math.max(totalMax, histogram.max.get());
+        }
+
+        if (total == 0) {
+            return LatencySnapshot.builder().build();
+        }
+
+        return LatencySnapshot.builder()
+                .count(total)
+                .meanMs(toMillis(totalSum / (double) total))
+                .p50Ms(toMillis(percentile(merged, total, totalMax, 0.50)))
+                .p90Ms(toMillis(percentile(merged, total, totalMax, 0.90)))
+                .p99Ms(toMillis(percentile(merged, total, totalMax, 0.99)))
+                .p999Ms(toMillis(percentile(merged, total, totalMax, 0.999)))
+                .maxMs(toMillis(totalMax))
+                .build();
+    }
+
+    private static long percentile(long[] counts, long total, long max, double quantile) {
+        long target = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueIn(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int indexOf(long value) {
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        if (highestBit < SUB_BUCKET_BITS) {
+            return (int) value;
+        }
+        int shift = highestBit - SUB_BUCKET_BITS + 1;
+        return shift * HALF_SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    private static long highestValueIn(int index) {
+        if (index < 2 * HALF_SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / HALF_SUB_BUCKET_COUNT - 1;
+        long subBucket = index - (long) shift * HALF_SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private static double toMillis(double nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
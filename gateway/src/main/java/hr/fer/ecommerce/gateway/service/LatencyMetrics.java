@@ -0,0 +1,132 @@
+package hr.fer.ecommerce.gateway.service;
+
+import hr.fer.ecommerce.gateway.config.LatencyMetricsConfig;
+import hr.fer.ecommerce.gateway.dto.LatencyMetricsResponse;
+import hr.fer.ecommerce.gateway.dto.LatencyStatsResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Per protocol and step latency histograms, recorded in nanoseconds. Each histogram keeps a
+// cumulative view since the last reset and a sliding window made of a ring of time slots.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LatencyMetrics {
+
+    public static final String ORDER = "order";
+    public static final String PAYMENT = "payment";
+    public static final String SHIPPING = "shipping";
+    public static final String PREPARE = "prepare";
+    public static final String COMMIT = "commit";
+    public static final String ABORT = "abort";
+    public static final String TOTAL = "total";
+    // time from an in-doubt reservation being prepared until the resolver committed or aborted it
+    public static final String RESOLUTION = "resolution";
+    // concurrent pre-flight validation before the first write
+    public static final String VALIDATION = "validation";
+
+    private static final List<String> STEPS = List.of(VALIDATION, ORDER, PAYMENT, SHIPPING, PREPARE, COMMIT, ABORT, TOTAL, RESOLUTION);
+
+    private final LatencyMetricsConfig latencyMetricsConfig;
+
+    private final ConcurrentMap<Key, WindowedHistogram> histograms = new ConcurrentHashMap<>();
+    private volatile LocalDateTime resetAt = LocalDateTime.now();
+
+    // Records the time elapsed since startNanos and returns it in milliseconds for the response fields
+    public long stop(String protocol, String step, long startNanos) {
+        return record(protocol, step, System.nanoTime() - startNanos);
+    }
+
+    public long record(String protocol, String step, long nanos) {
+        histograms.computeIfAbsent(new Key(protocol, step), key -> new WindowedHistogram(latencyMetricsConfig.getSlots()))
+                .record(nanos);
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    @Scheduled(fixedRateString = "${metrics.latency.slot-duration:10s}")
+    public void rotate() {
+        histograms.values().forEach(WindowedHistogram::rotate);
+    }
+
+    // windowSeconds is rounded up to whole slots and capped at the ring length
+    public LatencyMetricsResponse snapshot(Integer windowSeconds) {
+        long slotSeconds = Math.max(1, latencyMetricsConfig.getSlotDuration().toSeconds());
+        int slots = windowSeconds == null
+                ? latencyMetricsConfig.getSlots()
+                : Math.clamp((windowSeconds + slotSeconds - 1) / slotSeconds, 1, latencyMetricsConfig.getSlots());
+
+        List<LatencyStatsResponse> stats = new ArrayList<>();
+        histograms.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<Key, WindowedHistogram> entry) -> entry.getKey().protocol())
+                        .thenComparing(entry -> STEPS.indexOf(entry.getKey().step())))
+                .forEach(entry -> stats.add(LatencyStatsResponse.builder()
+                        .protocol(entry.getKey().protocol())
+                        .step(entry.getKey().step())
+                        .window(LatencyHistogram.snapshot(entry.getValue().lastSlots(slots)))
+                        .sinceReset(LatencyHistogram.snapshot(List.of(entry.getValue().cumulative)))
+                        .build()));
+
+        return LatencyMetricsResponse.builder()
+                .windowSeconds(slots * slotSeconds)
+                .resetAt(resetAt)
+                .histograms(stats)
+                .build();
+    }
+
+    public void reset() {
+        histograms.clear();
+        resetAt = LocalDateTime.now();
+        log.info("Latency histograms reset");
+    }
+
+    private record Key(String protocol, String step) {
+    }
+
+    private static class WindowedHistogram {
+
+        private final LatencyHistogram cumulative = new LatencyHistogram();
+        private final AtomicReferenceArray<LatencyHistogram> slots;
+        private volatile int current;
+
+        WindowedHistogram(int slotCount) {
+            slots = new AtomicReferenceArray<>(slotCount);
+            for (int i = 0; i < slotCount; i++) {
+                slots.set(i, new LatencyHistogram());
+            }
+        }
+
+        void record(long nanos) {
+            cumulative.record(nanos);
+            slots.get(current).record(nanos);
+        }
+
+        // Only the scheduler thread rotates; the oldest slot is replaced instead of cleared so a
+        // concurrent writer can never see a half-reset histogram
+        void rotate() {
+            int next = (current + 1) % slots.length();
+            slots.set(next, new LatencyHistogram());
+            current = next;
+        }
+
+        List<LatencyHistogram> lastSlots(int count) {
+            List<LatencyHistogram> result = new ArrayList<>(count);
+            int head = current;
+            for (int i = 0; i < count; i++) {
+                result.add(slots.get(Math.floorMod(head - i, slots.length())));
+            }
+            return result;
+        }
+    }
+}
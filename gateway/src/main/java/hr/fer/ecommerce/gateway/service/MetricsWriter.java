@@ -0,0 +1,125 @@
+package hr.fer.ecommerce.gateway.service;
+
+import hr.fer.ecommerce.gateway.config.MetricsWriterConfig;
+import hr.fer.ecommerce.gateway.dto.MetricsWriterStats;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderResponse;
+import hr.fer.ecommerce.gateway.model.MetricsEntity;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Request threads only enqueue a row; the scheduler thread writes them to the metrics table in JDBC batches
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MetricsWriter {
+
+    public static final String SAGA = "SAGA";
+    public static final String TWO_PHASE_COMMIT = "2PC";
+    public static final String SAGA_REACTIVE = "SAGA-REACTIVE";
+    public static final String TWO_PHASE_COMMIT_REACTIVE = "2PC-REACTIVE";
+
+    private static final String INSERT_SQL = "INSERT INTO metrics (protocol, order_latency, payment_latency, " +
+            "shipping_latency, total_latency, compensations, order_status, payment_status, shipping_status, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MetricsWriterConfig metricsWriterConfig;
+
+    // ConcurrentLinkedQueue is unbounded, so the bound is enforced with a separate counter
+    private final ConcurrentLinkedQueue<MetricsEntity> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public void record(String protocol, PlaceOrderResponse response) {
+        recorded.incrementAndGet();
+
+        if (queued.incrementAndGet() > metricsWriterConfig.getCapacity()) {
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+
+        queue.offer(MetricsEntity.builder()
+                .protocol(protocol)
+                .orderLatency(response.getOrderLatency())
+                .paymentLatency(response.getPaymentLatency())
+                .shippingLatency(response.getShippingLatency())
+                .totalLatency(response.getTotalLatency())
+                .compensations(response.getCompensations())
+                .orderStatus(response.getOrderStatus())
+                .paymentStatus(response.getPaymentStatus())
+                .shippingStatus(response.getShipmentStatus())
+                .build());
+    }
+
+    @Scheduled(fixedDelayString = "${metrics.writer.flush-interval:200ms}")
+    public void flush() {
+        List<MetricsEntity> batch = new ArrayList<>(metricsWriterConfig.getBatchSize());
+        MetricsEntity row;
+
+        while ((row = queue.poll()) != null) {
+            queued.decrementAndGet();
+            batch.add(row);
+            if (batch.size() == metricsWriterConfig.getBatchSize()) {
+                write(batch);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    public MetricsWriterStats stats() {
+        return MetricsWriterStats.builder()
+                .queued(queued.get())
+                .capacity(metricsWriterConfig.getCapacity())
+                .recorded(recorded.get())
+                .written(written.get())
+                .dropped(dropped.get())
+                .failed(failed.get())
+                .build();
+    }
+
+    private void write(List<MetricsEntity> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, metrics) -> {
+                ps.setString(1, metrics.getProtocol());
+                ps.setObject(2, metrics.getOrderLatency());
+                ps.setObject(3, metrics.getPaymentLatency());
+                ps.setObject(4, metrics.getShippingLatency());
+                ps.setObject(5, metrics.getTotalLatency());
+                ps.setObject(6, metrics.getCompensations());
+                ps.setString(7, metrics.getOrderStatus());
+                ps.setString(8, metrics.getPaymentStatus());
+                ps.setString(9, metrics.getShippingStatus());
+                ps.setTimestamp(10, Timestamp.valueOf(metrics.getCreatedAt()));
+            });
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            failed.addAndGet(batch.size());
+            log.error("Failed to write {} metrics rows: {}", batch.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package hr.fer.ecommerce.gateway.service;
+
+import hr.fer.ecommerce.gateway.client.MicroserviceClient;
+import hr.fer.ecommerce.gateway.client.order.OrderIdBlock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hi-lo allocation of order IDs: a block is reserved from the order service once and its IDs are handed
+// out locally, so a 2PC transaction knows its order ID before the order is prepared. IDs left in the
+// block when the gateway stops are simply never used.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderIdAllocator {
+
+    private final MicroserviceClient microserviceClient;
+
+    // The block is fetched over HTTP while this is held, which inside synchronized would pin a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long next;
+    private long end;
+
+    // Callers arriving while a block is fetched wait for it; that happens once per block
+    public long nextId() {
+        lock.lock();
+        try {
+            if (next == end) {
+                OrderIdBlock block = microserviceClient.allocateOrderIds();
+                next = block.getFirstId();
+                end = next + block.getSize();
+                log.info("Reserved order ID block {}-{}", next, end - 1);
+            }
+            return next++;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
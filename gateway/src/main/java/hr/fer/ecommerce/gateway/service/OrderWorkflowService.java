@@ -0,0 +1,210 @@
+package hr.fer.ecommerce.gateway.service;
+
+import hr.fer.ecommerce.gateway.config.AsyncOrdersConfig;
+import hr.fer.ecommerce.gateway.config.TraceContext;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderRequest;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderResponse;
+import hr.fer.ecommerce.gateway.dto.WorkflowStatusResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Accepted orders run on the bounded workflow pool instead of the request thread. The caller gets a
+// workflow ID straight away and follows it by polling or over SSE.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderWorkflowService {
+
+    private final SagaService sagaService;
+    private final TwoPhaseCommitService twoPhaseCommitService;
+    private final ThreadPoolExecutor workflowExecutor;
+    private final AsyncOrdersConfig asyncOrdersConfig;
+
+    private final ConcurrentMap<String, Workflow> workflows = new ConcurrentHashMap<>();
+
+    public WorkflowStatusResponse submitSaga(PlaceOrderRequest request) {
+        return submit(MetricsWriter.SAGA, request, sagaService::placeOrder);
+    }
+
+    public WorkflowStatusResponse submit2PC(PlaceOrderRequest request) {
+        return submit(MetricsWriter.TWO_PHASE_COMMIT, request, twoPhaseCommitService::placeOrderWith2PC);
+    }
+
+    public Optional<WorkflowStatusResponse> status(String workflowId) {
+        return Optional.ofNullable(workflows.get(workflowId)).map(Workflow::snapshot);
+    }
+
+    // Sends the current state right away and every change after it; the stream ends when the workflow finishes
+    public Optional<SseEmitter> subscribe(String workflowId) {
+        Workflow workflow = workflows.get(workflowId);
+        if (workflow == null) {
+            return Optional.empty();
+        }
+
+        SseEmitter emitter = new SseEmitter(asyncOrdersConfig.getSseTimeout().toMillis());
+        emitter.onCompletion(() -> workflow.subscribers.remove(emitter));
+        emitter.onTimeout(() -> workflow.subscribers.remove(emitter));
+        emitter.onError(e -> workflow.subscribers.remove(emitter));
+        workflow.subscribe(emitter);
+        return Optional.of(emitter);
+    }
+
+    @Scheduled(fixedDelayString = "${async-orders.retention:10m}")
+    public void purgeFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(asyncOrdersConfig.getRetention());
+        workflows.values().removeIf(workflow -> workflow.finishedBefore(cutoff));
+    }
+
+    // Throws RejectedExecutionException when the queue is full; nothing is kept for a rejected request
+    private WorkflowStatusResponse submit(String protocol, PlaceOrderRequest request,
+                                          Function<PlaceOrderRequest, PlaceOrderResponse> placeOrder) {
+        Workflow workflow = new Workflow(UUID.randomUUID().toString(), protocol);
+        workflows.put(workflow.id, workflow);
+
+        try {
+            // the workflow's calls join the trace of the request that accepted it
+            workflowExecutor.execute(TraceContext.propagate(() -> run(workflow, request, placeOrder)));
+        } catch (RejectedExecutionException e) {
+            workflows.remove(workflow.id);
+            throw e;
+        }
+
+        log.info("Accepted {} workflow {} for customer: {}", protocol, workflow.id, request.getCustomerEmail());
+        return workflow.snapshot();
+    }
+
+    private void run(Workflow workflow, PlaceOrderRequest request,
+                     Function<PlaceOrderRequest, PlaceOrderResponse> placeOrder) {
+        workflow.start();
+        try {
+            PlaceOrderResponse response = placeOrder.apply(request);
+            workflow.finish(response.isSuccess() ? WorkflowStatusResponse.COMPLETED : WorkflowStatusResponse.FAILED, response);
+        } catch (Exception e) {
+            log.error("Workflow {} failed: {}", workflow.id, e.getMessage(), e);
+            workflow.finish(WorkflowStatusResponse.FAILED, PlaceOrderResponse.builder()
+                    .success(false)
+                    .message("Failed to place order")
+                    .errorDetails("Unexpected error: " + e.getMessage())
+                    .timestamp(LocalDateTime.now())
+                    .build());
+        }
+    }
+
+    private static class Workflow {
+
+        private final String id;
+        private final String protocol;
+        private final LocalDateTime acceptedAt = LocalDateTime.now();
+        private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+        // Held while events are written to subscribers, so a slow client must not pin a carrier thread
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private String state = WorkflowStatusResponse.QUEUED;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private PlaceOrderResponse result;
+
+        Workflow(String id, String protocol) {
+            this.id = id;
+            this.protocol = protocol;
+        }
+
+        WorkflowStatusResponse snapshot() {
+            lock.lock();
+            try {
+                return WorkflowStatusResponse.builder()
+                        .workflowId(id)
+                        .protocol(protocol)
+                        .state(state)
+                        .acceptedAt(acceptedAt)
+                        .startedAt(startedAt)
+                        .finishedAt(finishedAt)
+                        .result(result)
+                        .build();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean finishedBefore(LocalDateTime cutoff) {
+            lock.lock();
+            try {
+                return finishedAt != null && finishedAt.isBefore(cutoff);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Events are sent under the lock so every subscriber sees the states in order
+        void start() {
+            lock.lock();
+            try {
+                state = WorkflowStatusResponse.RUNNING;
+                startedAt = LocalDateTime.now();
+                publish(snapshot());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void finish(String finalState, PlaceOrderResponse response) {
+            lock.lock();
+            try {
+                state = finalState;
+                result = response;
+                finishedAt = LocalDateTime.now();
+                publish(snapshot());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void subscribe(SseEmitter emitter) {
+            lock.lock();
+            try {
+                WorkflowStatusResponse current = snapshot();
+                if (!current.isFinished()) {
+                    subscribers.add(emitter);
+                }
+                send(emitter, current);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void publish(WorkflowStatusResponse status) {
+            subscribers.forEach(emitter -> send(emitter, status));
+        }
+
+        private void send(SseEmitter emitter, WorkflowStatusResponse status) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(status.getState())
+                        .name("workflow")
+                        .data(status));
+                if (status.isFinished()) {
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // client went away; the completion callback removes the emitter
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package hr.fer.ecommerce.gateway.service;
+
+public class PreValidationFailedException extends RuntimeException {
+    public PreValidationFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,158 @@
+package hr.fer.ecommerce.gateway.service;
+
+import hr.fer.ecommerce.gateway.client.MicroserviceClient;
+import hr.fer.ecommerce.gateway.client.payment.CreatePaymentRequest;
+import hr.fer.ecommerce.gateway.client.product.StockValidationRequest;
+import hr.fer.ecommerce.gateway.client.shipment.CreateShipmentRequest;
+import hr.fer.ecommerce.gateway.config.PreValidationConfig;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Pre-flight stage of the saga and 2PC: the stock, payment and shipping validators are asked concurrently
+// before anything is written, so an order that is bound to fail is rejected without writes or compensations.
+// Only a validator's own 4xx rejection counts; a timeout, a server error, 429, an open breaker or a full bulkhead
+// says nothing about the order and lets it go ahead.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PreValidationService {
+
+    private final MicroserviceClient microserviceClient;
+    private final PreValidationConfig preValidationConfig;
+    private final ExecutorService participantExecutor;
+    private final LatencyMetrics latencyMetrics;
+
+    // recent rejections by check key, e.g. an unavailable carrier
+    private final ConcurrentMap<String, Rejection> rejections = new ConcurrentHashMap<>();
+
+    public void validate(String protocol, PlaceOrderRequest request) {
+        if (!preValidationConfig.isEnabled()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            List<Check> checks = checks(request);
+            for (Check check : checks) {
+                Rejection cached = rejections.get(check.key());
+                if (cached != null && cached.expiresAt().isAfter(LocalDateTime.now())) {
+                    log.info("Pre-validation rejected {} order from cache: {}", protocol, cached.reason());
+                    throw new PreValidationFailedException(cached.reason());
+                }
+            }
+
+            CompletableFuture<String> firstRejection = new CompletableFuture<>();
+            CompletableFuture<?>[] settled = checks.stream()
+                    .map(check -> CompletableFuture.runAsync(check.call(), participantExecutor)
+                            .orTimeout(preValidationConfig.getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                            .handle((ignored, e) -> {
+                                if (e != null) {
+                                    settle(check, e, firstRejection);
+                                }
+                                return null;
+                            }))
+                    .toArray(CompletableFuture[]::new);
+
+            // the first rejection decides; otherwise every check has passed or been skipped
+            CompletableFuture.anyOf(CompletableFuture.allOf(settled), firstRejection).join();
+            if (firstRejection.isDone()) {
+                throw new PreValidationFailedException(firstRejection.join());
+            }
+        } finally {
+            latencyMetrics.stop(protocol, LatencyMetrics.VALIDATION, start);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${pre-validation.negative-cache-ttl:5s}")
+    public void purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        rejections.values().removeIf(rejection -> !rejection.expiresAt().isAfter(now));
+    }
+
+    private void settle(Check check, Throwable e, CompletableFuture<String> firstRejection) {
+        Throwable cause = e;
+        while (cause != null && !(cause instanceof HttpClientErrorException)) {
+            cause = cause.getCause();
+        }
+
+        if (cause == null || ((HttpClientErrorException) cause).getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+            log.warn("Pre-validation check {} skipped: {}", check.key(), e.getMessage());
+            return;
+        }
+
+        String reason = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+        rejections.put(check.key(), new Rejection(reason, LocalDateTime.now().plus(preValidationConfig.getNegativeCacheTtl())));
+        log.info("Pre-validation check {} rejected the order: {}", check.key(), reason);
+        firstRejection.complete(reason);
+    }
+
+    // Keys hold exactly the fields each validator looks at, so a cached rejection only matches identical checks
+    private List<Check> checks(PlaceOrderRequest request) {
+        String items = request.getOrderItems().stream()
+                .sorted(Comparator.comparing(PlaceOrderRequest.OrderItemRequest::getProductId))
+                .map(item -> item.getProductId() + "x" + item.getQuantity())
+                .collect(Collectors.joining(","));
+
+        return List.of(
+                new Check("stock:" + items,
+                        () -> microserviceClient.validateStock(buildStockRequest(request))),
+                new Check("payment:" + request.getPaymentMethod() + ":" + request.getPaymentProvider() + ":" + request.getCardLastFourDigits(),
+                        () -> microserviceClient.validatePayment(buildPaymentRequest(request))),
+                new Check("shipping:" + request.getCarrier() + ":" + request.getShippingAddress(),
+                        () -> microserviceClient.validateShipment(buildShipmentRequest(request))));
+    }
+
+    private StockValidationRequest buildStockRequest(PlaceOrderRequest request) {
+        return StockValidationRequest.builder()
+                .items(request.getOrderItems().stream()
+                        .map(item -> StockValidationRequest.Item.builder()
+                                .productId(item.getProductId())
+                                .quantity(item.getQuantity())
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    // There is no order yet. The validators only log the order ID once the recipient is in the request.
+    private CreatePaymentRequest buildPaymentRequest(PlaceOrderRequest request) {
+        return CreatePaymentRequest.builder()
+                .orderId(0L)
+                .paidCustomerName(request.getCustomerName())
+                .paidCustomerEmail(request.getCustomerEmail())
+                .paymentMethod(request.getPaymentMethod())
+                .paymentProvider(request.getPaymentProvider())
+                .cardLastFourDigits(request.getCardLastFourDigits())
+                .build();
+    }
+
+    private CreateShipmentRequest buildShipmentRequest(PlaceOrderRequest request) {
+        return CreateShipmentRequest.builder()
+                .orderId(0L)
+                .carrier(request.getCarrier())
+                .customerName(request.getCustomerName())
+                .customerEmail(request.getCustomerEmail())
+                .shippingAddress(request.getShippingAddress())
+                .build();
+    }
+
+    private record Check(String key, Runnable call) {
+    }
+
+    private record Rejection(String reason, LocalDateTime expiresAt) {
+    }
+}
@@ -0,0 +1,163 @@
+package hr.fer.ecommerce.gateway.service;
+
+import hr.fer.ecommerce.gateway.client.ReactiveMicroserviceClient;
+import hr.fer.ecommerce.gateway.client.order.CreateOrderRequest;
+import hr.fer.ecommerce.gateway.client.order.OrderResponse;
+import hr.fer.ecommerce.gateway.client.payment.CreatePaymentRequest;
+import hr.fer.ecommerce.gateway.client.shipment.CreateShipmentRequest;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderRequest;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderResponse;
+import hr.fer.ecommerce.gateway.dto.SagaContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+// Same saga as SagaService, but every step is a non-blocking WebClient call,
+// so an in-flight saga does not hold a request thread between hops.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveSagaService {
+
+    private final ReactiveMicroserviceClient reactiveMicroserviceClient;
+    private final MetricsWriter metricsWriter;
+    private final LatencyMetrics latencyMetrics;
+
+    public Mono<PlaceOrderResponse> placeOrder(PlaceOrderRequest request) {
+        return Mono.defer(() -> {
+            log.info("Starting reactive order placement for customer: {}", request.getCustomerEmail());
+            SagaContext saga = SagaContext.builder().build();
+            long startTotal = System.nanoTime();
+
+            return timed(reactiveMicroserviceClient.createOrder(buildOrderRequest(request)), LatencyMetrics.ORDER, saga::setOrderLatency)
+                    .doOnNext(order -> {
+                        saga.setOrder(order);
+                        log.info("Order created with ID: {}", order.getId());
+                    })
+                    .flatMap(order -> timed(reactiveMicroserviceClient.createPayment(buildPaymentRequest(request, order)),
+                            LatencyMetrics.PAYMENT, saga::setPaymentLatency))
+                    .doOnNext(payment -> {
+                        saga.setPayment(payment);
+                        log.info("Payment created with ID: {} and transaction ID: {}", payment.getId(), payment.getTransactionId());
+                    })
+                    .flatMap(payment -> timed(reactiveMicroserviceClient.createShipment(buildShipmentRequest(request, saga.getOrder())),
+                            LatencyMetrics.SHIPPING, saga::setShippingLatency))
+                    .doOnNext(shipment -> {
+                        saga.setShipment(shipment);
+                        log.info("Shipment created with ID: {}", shipment.getId());
+                    })
+                    .map(shipment -> {
+                        log.info("Order placement completed successfully for order ID: {}", saga.getOrder().getId());
+                        return PlaceOrderResponse.builder()
+                                .success(true)
+                                .message("Order placed successfully")
+                                .orderId(saga.getOrder().getId())
+                                .orderStatus(saga.getOrder().getStatus())
+                                .totalAmount(saga.getOrder().getTotalAmount())
+                                .paymentId(saga.getPayment().getId())
+                                .paymentStatus(saga.getPayment().getStatus())
+                                .transactionId(saga.getPayment().getTransactionId())
+                                .shipmentId(shipment.getId())
+                                .shipmentStatus(shipment.getStatus())
+                                .trackingNumber(shipment.getTrackingNumber())
+                                .timestamp(LocalDateTime.now())
+                                .orderLatency(saga.getOrderLatency())
+                                .paymentLatency(saga.getPaymentLatency())
+                                .shippingLatency(saga.getShippingLatency())
+                                .totalLatency(latencyMetrics.stop(MetricsWriter.SAGA_REACTIVE, LatencyMetrics.TOTAL, startTotal))
+                                .compensations(0)
+                                .build();
+                    })
+                    .onErrorResume(e -> {
+                        log.error("Error during reactive order placement: {}", e.getMessage(), e);
+                        List<Mono<Void>> compensations = compensations(saga);
+
+                        return Flux.concat(compensations)
+                                .then(Mono.fromSupplier(() -> PlaceOrderResponse.builder()
+                                        .success(false)
+                                        .message("Failed to place order")
+                                        .errorDetails(parseErrorMessage(e))
+                                        .timestamp(LocalDateTime.now())
+                                        .orderLatency(saga.getOrderLatency())
+                                        .paymentLatency(saga.getPaymentLatency())
+                                        .shippingLatency(saga.getShippingLatency())
+                                        .totalLatency(latencyMetrics.stop(MetricsWriter.SAGA_REACTIVE, LatencyMetrics.TOTAL, startTotal))
+                                        .compensations(compensations.size())
+                                        .build()));
+                    })
+                    .doOnNext(response -> metricsWriter.record(MetricsWriter.SAGA_REACTIVE, response));
+        });
+    }
+
+    private String parseErrorMessage(Throwable e) {
+        String msg = e.getMessage();
+        if (msg.contains("FINA")) return "FINA service unavailable";
+        if (msg.contains("Carrier")) return "Shipping capacity unavailable";
+        return "Unexpected error: " + msg;
+    }
+
+    // Rollback in reverse order
+    private List<Mono<Void>> compensations(SagaContext saga) {
+        List<Mono<Void>> compensations = new ArrayList<>();
+        if (saga.getShipment() != null) {
+            compensations.add(reactiveMicroserviceClient.cancelShipment(saga.getShipment().getId()));
+        }
+        if (saga.getPayment() != null) {
+            compensations.add(reactiveMicroserviceClient.refundPayment(saga.getPayment().getId()));
+        }
+        if (saga.getOrder() != null) {
+            compensations.add(reactiveMicroserviceClient.cancelOrder(saga.getOrder().getId()));
+        }
+        return compensations;
+    }
+
+    private <T> Mono<T> timed(Mono<T> call, String step, LongConsumer latency) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call
+                    .doOnNext(ignored -> latency.accept(latencyMetrics.stop(MetricsWriter.SAGA_REACTIVE, step, start)))
+                    .doOnError(ignored -> latency.accept(latencyMetrics.stop(MetricsWriter.SAGA_REACTIVE, step, start)));
+        });
+    }
+
+    private CreateOrderRequest buildOrderRequest(PlaceOrderRequest request) {
+        return CreateOrderRequest.builder()
+                .customerName(request.getCustomerName())
+                .customerEmail(request.getCustomerEmail())
+                .shippingAddress(request.getShippingAddress())
+                .orderItems(request.getOrderItems().stream()
+                        .map(item -> CreateOrderRequest.OrderItem.builder()
+                                .productId(item.getProductId())
+                                .quantity(item.getQuantity())
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private CreatePaymentRequest buildPaymentRequest(PlaceOrderRequest request, OrderResponse order) {
+        return CreatePaymentRequest.builder()
+                .orderId(order.getId())
+                .paidCustomerName(request.getCustomerName())
+                .paidCustomerEmail(request.getCustomerEmail())
+                .paymentMethod(request.getPaymentMethod())
+                .paymentProvider(request.getPaymentProvider())
+                .cardLastFourDigits(request.getCardLastFourDigits())
+                .build();
+    }
+
+    private CreateShipmentRequest buildShipmentRequest(PlaceOrderRequest request, OrderResponse order) {
+        return CreateShipmentRequest.builder()
+                .orderId(order.getId())
+                .carrier(request.getCarrier())
+                .estimatedDeliveryDate(LocalDateTime.now().plusDays(7))
+                .build();
+    }
+}
@@ -0,0 +1,287 @@
+package hr.fer.ecommerce.gateway.service;
+
+import hr.fer.ecommerce.gateway.client.ReactiveMicroserviceClient;
+import hr.fer.ecommerce.gateway.client.order.CreateOrderRequest;
+import hr.fer.ecommerce.gateway.client.order.OrderResponse;
+import hr.fer.ecommerce.gateway.client.payment.CreatePaymentRequest;
+import hr.fer.ecommerce.gateway.client.shipment.CreateShipmentRequest;
+import hr.fer.ecommerce.gateway.config.TwoPhaseCommitConfig;
+import hr.fer.ecommerce.gateway.dto.ParticipantOutcome;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderRequest;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderResponse;
+import hr.fer.ecommerce.gateway.dto.TwoPhaseCommitContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+
+// Same protocol as TwoPhaseCommitService on top of ReactiveMicroserviceClient
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveTwoPhaseCommitService {
+
+    private final ReactiveMicroserviceClient reactiveMicroserviceClient;
+    private final TwoPhaseCommitConfig twoPhaseCommitConfig;
+    private final MetricsWriter metricsWriter;
+    private final LatencyMetrics latencyMetrics;
+    private final CoordinatorLog coordinatorLog;
+
+    private static final String COMMIT = "COMMIT";
+    private static final String ABORT = "ABORT";
+
+    public Mono<PlaceOrderResponse> placeOrderWith2PC(PlaceOrderRequest request) {
+        return Mono.defer(() -> {
+            log.info("Starting reactive 2PC for customer: {}", request.getCustomerEmail());
+            TwoPhaseCommitContext context = TwoPhaseCommitContext.builder()
+                    .transactionId(coordinatorLog.begin())
+                    .build();
+            long totalStart = System.nanoTime();
+
+            return timed(preparePhase(request, context), LatencyMetrics.PREPARE, context::setPrepareLatency)
+                    // the forced decision write is blocking JDBC, so it runs off the event loop
+                    .then(Mono.fromRunnable(() -> coordinatorLog.logCommitDecision(context))
+                            .subscribeOn(Schedulers.boundedElastic()))
+                    .then(Mono.defer(() -> timed(commitPhase(context), LatencyMetrics.COMMIT, context::setCommitLatency)))
+                    .map(commitOutcomes -> {
+                        boolean allCommitted = commitOutcomes.stream().allMatch(ParticipantOutcome::isAcknowledged);
+                        if (allCommitted) {
+                            Schedulers.boundedElastic().schedule(() -> coordinatorLog.markCompleted(context.getTransactionId()));
+                        }
+
+                        return PlaceOrderResponse.builder()
+                                .success(allCommitted)
+                                .message(allCommitted
+                                        ? "Order placed successfully"
+                                        : "Commit decided but not all participants acknowledged")
+                                .errorDetails(allCommitted ? null : describeFailures(commitOutcomes))
+                                .orderId(context.getOrder().getId())
+                                .orderStatus(context.getOrder().getStatus())
+                                .totalAmount(context.getOrder().getTotalAmount())
+                                .paymentId(context.getPayment().getId())
+                                .paymentStatus(context.getPayment().getStatus())
+                                .transactionId(context.getPayment().getTransactionId())
+                                .shipmentId(context.getShipment().getId())
+                                .shipmentStatus(context.getShipment().getStatus())
+                                .trackingNumber(context.getShipment().getTrackingNumber())
+                                .timestamp(LocalDateTime.now())
+                                .orderLatency(context.getOrderLatency())
+                                .paymentLatency(context.getPaymentLatency())
+                                .shippingLatency(context.getShippingLatency())
+                                .prepareLatency(context.getPrepareLatency())
+                                .commitLatency(context.getCommitLatency())
+                                .totalLatency(latencyMetrics.stop(MetricsWriter.TWO_PHASE_COMMIT_REACTIVE, LatencyMetrics.TOTAL, totalStart))
+                                .compensations(0)
+                                .participantOutcomes(commitOutcomes)
+                                .build();
+                    })
+                    .onErrorResume(e -> {
+                        Throwable cause = Exceptions.unwrapMultiple(e).get(0);
+                        log.error("Prepare phase failed: {}", cause.getMessage());
+
+                        return abortPhase(context).map(abortOutcomes -> PlaceOrderResponse.builder()
+                                .success(false)
+                                .message("Order preparation failed - transaction aborted")
+                                .errorDetails(parseErrorMessage(cause))
+                                .timestamp(LocalDateTime.now())
+                                .orderLatency(context.getOrderLatency())
+                                .paymentLatency(context.getPaymentLatency())
+                                .shippingLatency(context.getShippingLatency())
+                                .prepareLatency(context.getPrepareLatency())
+                                .abortLatency(context.getAbortLatency())
+                                .totalLatency(latencyMetrics.stop(MetricsWriter.TWO_PHASE_COMMIT_REACTIVE, LatencyMetrics.TOTAL, totalStart))
+                                .compensations((int) abortOutcomes.stream().filter(ParticipantOutcome::isAcknowledged).count())
+                                .participantOutcomes(abortOutcomes)
+                                .build());
+                    })
+                    .doOnNext(response -> metricsWriter.record(MetricsWriter.TWO_PHASE_COMMIT_REACTIVE, response))
+                    .doFinally(signal -> coordinatorLog.release(context));
+        });
+    }
+
+    private String parseErrorMessage(Throwable e) {
+        String msg = e.getMessage();
+        if (msg.contains("FINA")) return "FINA service unavailable";
+        if (msg.contains("Carrier")) return "Shipping capacity unavailable";
+        return "Unexpected error: " + msg;
+    }
+
+    private String describeFailures(List<ParticipantOutcome> outcomes) {
+        return outcomes.stream()
+                .filter(outcome -> !outcome.isAcknowledged())
+                .map(outcome -> outcome.getParticipant() + " " + outcome.getOutcome() + ": " + outcome.getError())
+                .collect(Collectors.joining("; "));
+    }
+
+    private Mono<Void> preparePhase(PlaceOrderRequest request, TwoPhaseCommitContext context) {
+        return timed(reactiveMicroserviceClient.prepareOrder(buildOrderRequest(request)), LatencyMetrics.ORDER, context::setOrderLatency)
+                .doOnNext(preparedOrder -> {
+                    coordinatorLog.register(preparedOrder.getId());
+                    context.setOrder(preparedOrder);
+                    context.setOrderPrepared(true);
+                    log.info("Order prepared: ID={}, status={}, latency={}ms",
+                            preparedOrder.getId(), preparedOrder.getStatus(), context.getOrderLatency());
+                })
+                .flatMap(preparedOrder -> {
+                    Mono<Void> payment = Mono.defer(() -> preparePayment(request, context, preparedOrder));
+                    Mono<Void> shipment = Mono.defer(() -> prepareShipment(request, context, preparedOrder));
+
+                    // Both votes are awaited even if one fails, so no participant is left prepared
+                    // behind a cancelled request without the coordinator knowing about it.
+                    return twoPhaseCommitConfig.isParallelPrepare()
+                            ? Mono.whenDelayError(payment, shipment)
+                            : payment.then(shipment);
+                })
+                .doOnSuccess(ignored -> log.info("Prepare phase completed - all resources reserved"));
+    }
+
+    private Mono<Void> preparePayment(PlaceOrderRequest request, TwoPhaseCommitContext context, OrderResponse preparedOrder) {
+        return timed(reactiveMicroserviceClient.preparePayment(buildPaymentRequest(request, preparedOrder)), LatencyMetrics.PAYMENT, context::setPaymentLatency)
+                .doOnNext(preparedPayment -> {
+                    context.setPayment(preparedPayment);
+                    context.setPaymentPrepared(true);
+                    log.info("Payment prepared: ID={}, status={}, latency={}ms",
+                            preparedPayment.getId(), preparedPayment.getStatus(), context.getPaymentLatency());
+                })
+                .then();
+    }
+
+    private Mono<Void> prepareShipment(PlaceOrderRequest request, TwoPhaseCommitContext context, OrderResponse preparedOrder) {
+        return timed(reactiveMicroserviceClient.prepareShipment(buildShipmentRequest(request, preparedOrder)), LatencyMetrics.SHIPPING, context::setShippingLatency)
+                .doOnNext(preparedShipment -> {
+                    context.setShipment(preparedShipment);
+                    context.setShipmentPrepared(true);
+                    log.info("Shipment prepared: ID={}, status={}, latency={}ms",
+                            preparedShipment.getId(), preparedShipment.getStatus(), context.getShippingLatency());
+                })
+                .then();
+    }
+
+    private Mono<List<ParticipantOutcome>> commitPhase(TwoPhaseCommitContext context) {
+        log.info("Committing order, payment and shipment");
+        return Flux.merge(
+                        sendDecision("order", COMMIT, ParticipantOutcome.COMMITTED,
+                                reactiveMicroserviceClient.commitOrder(context.getOrder().getId()),
+                                committedOrder -> {
+                                    context.setOrder(committedOrder);
+                                    context.setOrderCommitted(true);
+                                }),
+                        sendDecision("payment", COMMIT, ParticipantOutcome.COMMITTED,
+                                reactiveMicroserviceClient.commitPayment(context.getPayment().getId()),
+                                committedPayment -> {
+                                    context.setPayment(committedPayment);
+                                    context.setPaymentCommitted(true);
+                                }),
+                        sendDecision("shipment", COMMIT, ParticipantOutcome.COMMITTED,
+                                reactiveMicroserviceClient.commitShipment(context.getShipment().getId()),
+                                committedShipment -> {
+                                    context.setShipment(committedShipment);
+                                    context.setShipmentCommitted(true);
+                                }))
+                .collectList()
+                .doOnNext(outcomes -> log.info("Commit phase completed: {}", outcomes));
+    }
+
+    private Mono<List<ParticipantOutcome>> abortPhase(TwoPhaseCommitContext context) {
+        List<Mono<ParticipantOutcome>> aborts = new ArrayList<>();
+
+        if (context.isShipmentPrepared() && context.getShipment() != null) {
+            aborts.add(sendDecision("shipment", ABORT, ParticipantOutcome.ABORTED,
+                    reactiveMicroserviceClient.abortShipment(context.getShipment().getId()), aborted -> { }));
+        }
+
+        if (context.isPaymentPrepared() && context.getPayment() != null) {
+            aborts.add(sendDecision("payment", ABORT, ParticipantOutcome.ABORTED,
+                    reactiveMicroserviceClient.abortPayment(context.getPayment().getId()), aborted -> { }));
+        }
+
+        if (context.isOrderPrepared() && context.getOrder() != null) {
+            aborts.add(sendDecision("order", ABORT, ParticipantOutcome.ABORTED,
+                    reactiveMicroserviceClient.abortOrder(context.getOrder().getId()), aborted -> { }));
+        }
+
+        return timed(Flux.merge(aborts).collectList(), LatencyMetrics.ABORT, context::setAbortLatency)
+                .doOnNext(outcomes -> log.info("Abort phase completed in {} ms with {} outcomes",
+                        context.getAbortLatency(), outcomes.size()));
+    }
+
+    private <T> Mono<ParticipantOutcome> sendDecision(String participant, String phase, String successOutcome,
+                                                      Mono<T> call, Consumer<T> onAcknowledged) {
+        return Mono.defer(() -> {
+            long start = System.currentTimeMillis();
+            ParticipantOutcome.ParticipantOutcomeBuilder outcome = ParticipantOutcome.builder()
+                    .participant(participant)
+                    .phase(phase);
+
+            return call
+                    .doOnNext(onAcknowledged)
+                    .then(Mono.fromSupplier(() -> outcome
+                            .outcome(successOutcome)
+                            .latency(System.currentTimeMillis() - start)
+                            .build()))
+                    .timeout(twoPhaseCommitConfig.getParticipantTimeout())
+                    .onErrorResume(e -> {
+                        boolean timedOut = e instanceof TimeoutException;
+                        log.error("2PC {}: {} {}: {}", phase, participant, timedOut ? "timed out" : "failed", e.getMessage());
+                        return Mono.just(outcome
+                                .outcome(timedOut ? ParticipantOutcome.TIMED_OUT : ParticipantOutcome.FAILED)
+                                .latency(System.currentTimeMillis() - start)
+                                .error(e.getMessage())
+                                .build());
+                    });
+        });
+    }
+
+    private <T> Mono<T> timed(Mono<T> call, String step, LongConsumer latency) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call
+                    .doOnSuccess(ignored -> latency.accept(latencyMetrics.stop(MetricsWriter.TWO_PHASE_COMMIT_REACTIVE, step, start)))
+                    .doOnError(ignored -> latency.accept(latencyMetrics.stop(MetricsWriter.TWO_PHASE_COMMIT_REACTIVE, step, start)));
+        });
+    }
+
+    private CreateOrderRequest buildOrderRequest(PlaceOrderRequest request) {
+        return CreateOrderRequest.builder()
+                .customerName(request.getCustomerName())
+                .customerEmail(request.getCustomerEmail())
+                .shippingAddress(request.getShippingAddress())
+                .orderItems(request.getOrderItems().stream()
+                        .map(item -> CreateOrderRequest.OrderItem.builder()
+                                .productId(item.getProductId())
+                                .quantity(item.getQuantity())
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private CreatePaymentRequest buildPaymentRequest(PlaceOrderRequest request, OrderResponse order) {
+        return CreatePaymentRequest.builder()
+                .orderId(order.getId())
+                .paidCustomerName(request.getCustomerName())
+                .paidCustomerEmail(request.getCustomerEmail())
+                .paymentMethod(request.getPaymentMethod())
+                .paymentProvider(request.getPaymentProvider())
+                .cardLastFourDigits(request.getCardLastFourDigits())
+                .build();
+    }
+
+    private CreateShipmentRequest buildShipmentRequest(PlaceOrderRequest request, OrderResponse order) {
+        return CreateShipmentRequest.builder()
+                .orderId(order.getId())
+                .carrier(request.getCarrier())
+                .estimatedDeliveryDate(LocalDateTime.now().plusDays(7))
+                .build();
+    }
+}
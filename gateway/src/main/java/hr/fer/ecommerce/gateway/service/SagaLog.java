@@ -0,0 +1,223 @@
+package hr.fer.ecommerce.gateway.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.fer.ecommerce.gateway.config.SagaLogConfig;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderRequest;
+import hr.fer.ecommerce.gateway.model.SagaLogRecord;
+import hr.fer.ecommerce.gateway.model.SagaLogRecord.Event;
+import hr.fer.ecommerce.gateway.model.SagaLogRecord.Step;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Append-only saga log with group commit: a single writer thread drains every pending record into one
+// JDBC batch and one transaction, so concurrent sagas share the cost of a commit.
+// STARTED and final records are waited for (write-ahead); step results are queued and become durable
+// with the next commit, which always happens before any later record of the same saga.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SagaLog {
+
+    private static final String INSERT_SQL = "INSERT INTO saga_log (saga_id, step, event, resource_id, payload, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final RowMapper<SagaLogRecord> ROW_MAPPER = (rs, rowNum) -> SagaLogRecord.builder()
+            .id(rs.getLong("id"))
+            .sagaId(rs.getString("saga_id"))
+            .step(Step.valueOf(rs.getString("step")))
+            .event(Event.valueOf(rs.getString("event")))
+            .resourceId(rs.getObject("resource_id", Long.class))
+            .payload(rs.getString("payload"))
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final SagaLogConfig sagaLogConfig;
+
+    private final LinkedBlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private Thread writer;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    void startWriter() {
+        writer = Thread.ofPlatform().name("saga-log-writer").daemon().start(this::writeLoop);
+    }
+
+    @PreDestroy
+    void stopWriter() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join();
+        // anything still queued is written by the caller thread
+        writeBatch(drain(new ArrayList<>()));
+    }
+
+    public String begin(PlaceOrderRequest request) {
+        String sagaId = UUID.randomUUID().toString();
+        appendAndWait(SagaLogRecord.builder()
+                .sagaId(sagaId)
+                .step(Step.SAGA)
+                .event(Event.STARTED)
+                .payload(toJson(request))
+                .build());
+        return sagaId;
+    }
+
+    // Must be durable before the downstream call, otherwise recovery would not know to look for the resource
+    public void stepStarted(String sagaId, Step step) {
+        appendAndWait(record(sagaId, step, Event.STARTED, null));
+    }
+
+    public void stepCompleted(String sagaId, Step step, Long resourceId) {
+        append(record(sagaId, step, Event.COMPLETED, resourceId));
+    }
+
+    public void compensated(String sagaId, Step step, Long resourceId) {
+        append(record(sagaId, step, Event.COMPENSATED, resourceId));
+    }
+
+    public void compensationFailed(String sagaId, Step step, Long resourceId) {
+        append(record(sagaId, step, Event.COMPENSATION_FAILED, resourceId));
+    }
+
+    // A saga without a final record is picked up by recovery on the next start, so a failure here is only logged
+    public void finish(String sagaId, Event event) {
+        try {
+            appendAndWait(record(sagaId, Step.SAGA, event, null));
+        } catch (Exception e) {
+            log.error("Failed to write final saga log record for saga {}: {}", sagaId, e.getMessage());
+        }
+    }
+
+    // Sagas that started before the given time and have neither a COMPLETED nor an ABORTED final record
+    public List<String> unfinishedSagas(LocalDateTime startedBefore) {
+        return jdbcTemplate.queryForList("""
+                SELECT saga_id FROM saga_log
+                WHERE step = 'SAGA' AND event = 'STARTED' AND created_at < ?
+                AND saga_id NOT IN (
+                    SELECT saga_id FROM saga_log WHERE step = 'SAGA' AND event IN ('COMPLETED', 'ABORTED')
+                )
+                ORDER BY created_at
+                """, String.class, Timestamp.valueOf(startedBefore));
+    }
+
+    public List<SagaLogRecord> records(String sagaId) {
+        return jdbcTemplate.query("SELECT * FROM saga_log WHERE saga_id = ? ORDER BY id", ROW_MAPPER, sagaId);
+    }
+
+    public boolean isReferenced(Step step, Long resourceId) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM saga_log WHERE step = ? AND resource_id = ?",
+                Integer.class, step.name(), resourceId);
+        return count != null && count > 0;
+    }
+
+    @Scheduled(fixedDelayString = "${saga-log.retention:1h}", initialDelayString = "${saga-log.retention:1h}")
+    public void purgeFinishedSagas() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(sagaLogConfig.getRetention());
+        int deleted = jdbcTemplate.update("""
+                DELETE FROM saga_log WHERE saga_id IN (
+                    SELECT saga_id FROM saga_log
+                    WHERE step = 'SAGA' AND event IN ('COMPLETED', 'ABORTED') AND created_at < ?
+                )
+                """, Timestamp.valueOf(cutoff));
+        log.info("Purged {} saga log records of sagas finished before {}", deleted, cutoff);
+    }
+
+    private void append(SagaLogRecord record) {
+        queue.add(new PendingRecord(record, null));
+    }
+
+    private void appendAndWait(SagaLogRecord record) {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        queue.add(new PendingRecord(record, durable));
+        durable.join();
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>(sagaLogConfig.getMaxBatchSize());
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            writeBatch(drain(batch));
+            batch.clear();
+        }
+    }
+
+    private List<PendingRecord> drain(List<PendingRecord> batch) {
+        queue.drainTo(batch, sagaLogConfig.getMaxBatchSize() - batch.size());
+        return batch;
+    }
+
+    private void writeBatch(List<PendingRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, pending) -> {
+                        SagaLogRecord record = pending.record();
+                        ps.setString(1, record.getSagaId());
+                        ps.setString(2, record.getStep().name());
+                        ps.setString(3, record.getEvent().name());
+                        ps.setObject(4, record.getResourceId());
+                        ps.setString(5, record.getPayload());
+                        ps.setTimestamp(6, Timestamp.valueOf(record.getCreatedAt()));
+                    }));
+            batch.forEach(pending -> {
+                if (pending.durable() != null) {
+                    pending.durable().complete(null);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Failed to write {} saga log records: {}", batch.size(), e.getMessage());
+            batch.forEach(pending -> {
+                if (pending.durable() != null) {
+                    pending.durable().completeExceptionally(e);
+                }
+            });
+        }
+    }
+
+    private SagaLogRecord record(String sagaId, Step step, Event event, Long resourceId) {
+        return SagaLogRecord.builder()
+                .sagaId(sagaId)
+                .step(step)
+                .event(event)
+                .resourceId(resourceId)
+                .build();
+    }
+
+    private String toJson(PlaceOrderRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize saga request", e);
+        }
+    }
+
+    private record PendingRecord(SagaLogRecord record, CompletableFuture<Void> durable) {
+    }
+}
@@ -0,0 +1,190 @@
+package hr.fer.ecommerce.gateway.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.fer.ecommerce.gateway.client.MicroserviceClient;
+import hr.fer.ecommerce.gateway.client.order.OrderResponse;
+import hr.fer.ecommerce.gateway.client.payment.PaymentResponse;
+import hr.fer.ecommerce.gateway.client.shipment.ShipmentResponse;
+import hr.fer.ecommerce.gateway.config.SagaLogConfig;
+import hr.fer.ecommerce.gateway.config.ServicesConfig;
+import hr.fer.ecommerce.gateway.dto.PlaceOrderRequest;
+import hr.fer.ecommerce.gateway.model.SagaLogRecord;
+import hr.fer.ecommerce.gateway.model.SagaLogRecord.Event;
+import hr.fer.ecommerce.gateway.model.SagaLogRecord.Step;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// Finishes sagas that a previous gateway run left without a final record.
+// A saga whose three steps all completed is marked COMPLETED; any other saga is compensated in reverse order.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SagaRecoveryService {
+
+    private static final Step[] COMPENSATION_ORDER = {Step.SHIPMENT, Step.PAYMENT, Step.ORDER};
+    private static final Duration CLOCK_SLACK = Duration.ofSeconds(1);
+
+    private final SagaLog sagaLog;
+    private final MicroserviceClient microserviceClient;
+    private final SagaLogConfig sagaLogConfig;
+    private final ServicesConfig servicesConfig;
+    private final ObjectMapper objectMapper;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        if (!sagaLogConfig.isRecoverOnStartup()) {
+            return;
+        }
+
+        LocalDateTime recoveryStart = LocalDateTime.now();
+        List<String> unfinished = sagaLog.unfinishedSagas(recoveryStart);
+        if (unfinished.isEmpty()) {
+            return;
+        }
+
+        log.warn("Recovering {} unfinished sagas from the saga log", unfinished.size());
+        for (String sagaId : unfinished) {
+            try {
+                recover(sagaId, recoveryStart);
+            } catch (Exception e) {
+                log.error("Recovery of saga {} failed, it will be retried on the next start: {}", sagaId, e.getMessage());
+            }
+        }
+    }
+
+    private void recover(String sagaId, LocalDateTime recoveryStart) throws Exception {
+        SagaState state = SagaState.of(sagaLog.records(sagaId));
+
+        if (state.completed.size() == 3) {
+            log.info("Saga {}: all steps completed before the crash, marking it completed", sagaId);
+            sagaLog.finish(sagaId, Event.COMPLETED);
+            return;
+        }
+
+        PlaceOrderRequest request = objectMapper.readValue(state.begin.getPayload(), PlaceOrderRequest.class);
+        boolean allCompensated = true;
+
+        for (Step step : COMPENSATION_ORDER) {
+            if (!state.started.containsKey(step) || state.compensated.containsKey(step)) {
+                continue;
+            }
+
+            Optional<Long> resourceId = Optional.ofNullable(state.completed.get(step))
+                    .or(() -> findInDoubtResource(step, state, request, recoveryStart));
+            if (resourceId.isEmpty()) {
+                log.info("Saga {}: no {} was created, nothing to compensate", sagaId, step);
+                continue;
+            }
+
+            if (compensate(step, resourceId.get())) {
+                sagaLog.compensated(sagaId, step, resourceId.get());
+            } else {
+                sagaLog.compensationFailed(sagaId, step, resourceId.get());
+                allCompensated = false;
+            }
+        }
+
+        // with a failed compensation the saga stays unfinished and is retried on the next start
+        if (allCompensated) {
+            sagaLog.finish(sagaId, Event.ABORTED);
+            log.info("Saga {} recovered and aborted", sagaId);
+        }
+    }
+
+    // The step started but the crash happened before its result was logged, so ask the service whether it exists
+    private Optional<Long> findInDoubtResource(Step step, SagaState state, PlaceOrderRequest request, LocalDateTime recoveryStart) {
+        Long orderId = Optional.ofNullable(state.completed.get(Step.ORDER))
+                .or(() -> state.started.containsKey(Step.ORDER) ? findInDoubtOrder(state, request, recoveryStart) : Optional.empty())
+                .orElse(null);
+        if (orderId == null) {
+            return Optional.empty();
+        }
+
+        return switch (step) {
+            case ORDER -> Optional.of(orderId);
+            case PAYMENT -> microserviceClient.findPaymentByOrderId(orderId).map(PaymentResponse::getId);
+            case SHIPMENT -> microserviceClient.findShipmentByOrderId(orderId).map(ShipmentResponse::getId);
+            default -> Optional.empty();
+        };
+    }
+
+    // Orders have no saga reference, so match by customer and creation time and skip orders another saga owns
+    private Optional<Long> findInDoubtOrder(SagaState state, PlaceOrderRequest request, LocalDateTime recoveryStart) {
+        LocalDateTime from = state.started.get(Step.ORDER).getCreatedAt().minus(CLOCK_SLACK);
+        LocalDateTime to = state.started.get(Step.ORDER).getCreatedAt()
+                .plus(servicesConfig.getOrder().getPool().getResponseTimeout())
+                .plus(CLOCK_SLACK);
+
+        return microserviceClient.findOrdersByCustomer(request.getCustomerEmail()).stream()
+                .filter(order -> order.getCreatedAt() != null)
+                .filter(order -> !order.getCreatedAt().isBefore(from) && !order.getCreatedAt().isAfter(to))
+                .filter(order -> order.getCreatedAt().isBefore(recoveryStart))
+                .filter(order -> !sagaLog.isReferenced(Step.ORDER, order.getId()))
+                .min(Comparator.comparing(OrderResponse::getCreatedAt))
+                .map(OrderResponse::getId);
+    }
+
+    private boolean compensate(Step step, Long resourceId) {
+        Consumer<Long> compensation = switch (step) {
+            case SHIPMENT -> microserviceClient::cancelShipment;
+            case PAYMENT -> microserviceClient::refundPayment;
+            case ORDER -> microserviceClient::cancelOrder;
+            default -> throw new IllegalArgumentException("Step " + step + " has no compensation");
+        };
+
+        try {
+            compensation.accept(resourceId);
+            return true;
+        } catch (Exception e) {
+            // a cancelled order is deleted, so a missing resource was already compensated
+            if (e.getCause() instanceof HttpClientErrorException.NotFound) {
+                return true;
+            }
+            log.error("Failed to compensate {} {}: {}", step, resourceId, e.getMessage());
+            return false;
+        }
+    }
+
+    private record SagaState(SagaLogRecord begin,
+                             Map<Step, SagaLogRecord> started,
+                             Map<Step, Long> completed,
+                             Map<Step, Long> compensated) {
+
+        static SagaState of(List<SagaLogRecord> records) {
+            SagaLogRecord begin = null;
+            Map<Step, SagaLogRecord> started = new EnumMap<>(Step.class);
+            Map<Step, Long> completed = new EnumMap<>(Step.class);
+            Map<Step, Long> compensated = new EnumMap<>(Step.class);
+
+            for (SagaLogRecord record : records) {
+                if (record.getStep() == Step.SAGA) {
+                    if (record.getEvent() == Event.STARTED) {
+                        begin = record;
+                    }
+                    continue;
+                }
+                switch (record.getEvent()) {
+                    case STARTED -> started.put(record.getStep(), record);
+                    case COMPLETED -> completed.put(record.getStep(), record.getResourceId());
+                    case COMPENSATED -> compensated.put(record.getStep(), record.getResourceId());
+                    default -> {
+                    }
+                }
+            }
+            return new SagaState(begin, started, completed, compensated);
+        }
+    }
+}
@@ -1,21 +1,29 @@
 package hr.fer.ecommerce.gateway.service;
 
 import hr.fer.ecommerce.gateway.client.MicroserviceClient;
+import hr.fer.ecommerce.gateway.config.SagaConfig;
 import hr.fer.ecommerce.gateway.dto.PlaceOrderRequest;
 import hr.fer.ecommerce.gateway.dto.PlaceOrderResponse;
+import hr.fer.ecommerce.gateway.orchestration.Orchestration;
+import hr.fer.ecommerce.gateway.orchestration.Orchestrator;
 import hr.fer.ecommerce.gateway.client.order.CreateOrderRequest;
 import hr.fer.ecommerce.gateway.client.order.OrderResponse;
 import hr.fer.ecommerce.gateway.client.payment.CreatePaymentRequest;
 import hr.fer.ecommerce.gateway.client.payment.PaymentResponse;
 import hr.fer.ecommerce.gateway.client.shipment.CreateShipmentRequest;
 import hr.fer.ecommerce.gateway.client.shipment.ShipmentResponse;
-import hr.fer.ecommerce.gateway.dto.SagaContext;
+import hr.fer.ecommerce.gateway.model.CompensationTask.Action;
+import hr.fer.ecommerce.gateway.model.SagaLogRecord.Event;
+import hr.fer.ecommerce.gateway.model.SagaLogRecord.Step;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,129 +32,159 @@ import java.util.stream.Collectors;
 public class SagaService {
 
     private final MicroserviceClient microserviceClient;
+    private final MetricsWriter metricsWriter;
+    private final LatencyMetrics latencyMetrics;
+    private final SagaLog sagaLog;
+    private final SagaConfig sagaConfig;
+    private final Orchestrator orchestrator;
+    private final CompensationQueue compensationQueue;
+    private final PreValidationService preValidationService;
 
     public PlaceOrderResponse placeOrder(PlaceOrderRequest request) {
         log.info("Starting order placement for customer: {}", request.getCustomerEmail());
-        SagaContext saga = SagaContext.builder().build();
+        long startTotal = System.nanoTime();
+        try {
+            preValidationService.validate(MetricsWriter.SAGA, request);
+        } catch (PreValidationFailedException e) {
+            return rejected(request, e, startTotal);
+        }
 
-        long startTotal = System.currentTimeMillis();
-        long orderLatency = 0;
-        long paymentLatency = 0;
-        long shippingLatency = 0;
-        int compensations = 0;
+        String sagaId = sagaLog.begin(request);
+
+        // Payment and shipment only need the order ID, so with parallel steps both follow the order directly
+        Orchestration saga = orchestrator.orchestrate(MetricsWriter.SAGA);
+        Orchestration.Step<OrderResponse> order = saga.step(LatencyMetrics.ORDER,
+                        logged(sagaId, Step.ORDER, () -> createOrder(request), OrderResponse::getId))
+                .compensateWith(compensation(sagaId, Step.ORDER, OrderResponse::getId, Action.CANCEL_ORDER));
+        Orchestration.Step<PaymentResponse> payment = saga.step(LatencyMetrics.PAYMENT,
+                        logged(sagaId, Step.PAYMENT, () -> createPayment(request, order.value()), PaymentResponse::getId))
+                .after(order)
+                .compensateWith(compensation(sagaId, Step.PAYMENT, PaymentResponse::getId, Action.REFUND_PAYMENT));
+        Orchestration.Step<ShipmentResponse> shipment = saga.step(LatencyMetrics.SHIPPING,
+                        logged(sagaId, Step.SHIPMENT, () -> createShipment(request, order.value()), ShipmentResponse::getId))
+                .after(sagaConfig.isParallelSteps() ? order : payment)
+                .compensateWith(compensation(sagaId, Step.SHIPMENT, ShipmentResponse::getId, Action.CANCEL_SHIPMENT));
 
         try {
-            // --- Step 1: Order ---
-            long startOrder = System.currentTimeMillis();
-            OrderResponse order = createOrder(request);
-            orderLatency = System.currentTimeMillis() - startOrder;
-            saga.setOrder(order);
-            log.info("Order created with ID: {}", order.getId());
-
-            // --- Step 2: Payment ---
-            long startPayment = System.currentTimeMillis();
-            PaymentResponse payment = createPayment(request, order);
-            paymentLatency = System.currentTimeMillis() - startPayment;
-            saga.setPayment(payment);
-            log.info("Payment created with ID: {} and transaction ID: {}", payment.getId(), payment.getTransactionId());
-
-            // --- Step 3: Shipment ---
-            long startShipping = System.currentTimeMillis();
-            ShipmentResponse shipment = createShipment(request, order);
-            shippingLatency = System.currentTimeMillis() - startShipping;
-            saga.setShipment(shipment);
-            log.info("Shipment created with ID: {}", shipment.getId());
-
-            long totalLatency = System.currentTimeMillis() - startTotal;
+            saga.run();
+            log.info("Order created with ID: {}", order.value().getId());
+            log.info("Payment created with ID: {} and transaction ID: {}", payment.value().getId(), payment.value().getTransactionId());
+            log.info("Shipment created with ID: {}", shipment.value().getId());
+
+            sagaLog.finish(sagaId, Event.COMPLETED);
+            long totalLatency = latencyMetrics.stop(MetricsWriter.SAGA, LatencyMetrics.TOTAL, startTotal);
 
             // --- Build response sa metrike ---
             PlaceOrderResponse response = PlaceOrderResponse.builder()
                     .success(true)
                     .message("Order placed successfully")
-                    .orderId(order.getId())
-                    .orderStatus(order.getStatus())
-                    .totalAmount(order.getTotalAmount())
-                    .paymentId(payment.getId())
-                    .paymentStatus(payment.getStatus())
-                    .transactionId(payment.getTransactionId())
-                    .shipmentId(shipment.getId())
-                    .shipmentStatus(shipment.getStatus())
-                    .trackingNumber(shipment.getTrackingNumber())
+                    .orderId(order.value().getId())
+                    .orderStatus(order.value().getStatus())
+                    .totalAmount(order.value().getTotalAmount())
+                    .paymentId(payment.value().getId())
+                    .paymentStatus(payment.value().getStatus())
+                    .transactionId(payment.value().getTransactionId())
+                    .shipmentId(shipment.value().getId())
+                    .shipmentStatus(shipment.value().getStatus())
+                    .trackingNumber(shipment.value().getTrackingNumber())
                     .timestamp(LocalDateTime.now())
                     // --- DODANO: metrike ---
-                    .orderLatency(orderLatency)
-                    .paymentLatency(paymentLatency)
-                    .shippingLatency(shippingLatency)
+                    .orderLatency(order.latencyMillis())
+                    .paymentLatency(payment.latencyMillis())
+                    .shippingLatency(shipment.latencyMillis())
                     .totalLatency(totalLatency)
-                    .compensations(compensations) // 0 jer nije bilo rollbacka
+                    .criticalPathLatency(saga.criticalPathMillis())
+                    .compensations(0) // 0 jer nije bilo rollbacka
                     .build();
 
-            log.info("Order placement completed successfully for order ID: {}", order.getId());
+            log.info("Order placement completed successfully for order ID: {}", order.value().getId());
+            metricsWriter.record(MetricsWriter.SAGA, response);
             return response;
 
         } catch (Exception e) {
             log.error("Error during order placement: {}", e.getMessage(), e);
 
-            rollback(request, saga);
-
-            // Broj kompenzacija = koliko rollback akcija je pozvano
-            if (saga.getShipment() != null) compensations++;
-            if (saga.getPayment() != null) compensations++;
-            if (saga.getOrder() != null) compensations++;
+            // A compensation handed to the compensation queue is finished there; one that could not even be
+            // queued leaves the saga open for recovery
+            List<Orchestration.Compensation> compensations = saga.compensate();
+            int completed = (int) compensations.stream()
+                    .filter(compensation -> compensation.isCompensated()
+                            || compensation.error() instanceof CompensationQueuedException)
+                    .count();
+            if (completed == compensations.size()) {
+                sagaLog.finish(sagaId, Event.ABORTED);
+            }
 
-            long totalLatency = System.currentTimeMillis() - startTotal;
+            long totalLatency = latencyMetrics.stop(MetricsWriter.SAGA, LatencyMetrics.TOTAL, startTotal);
 
-            return PlaceOrderResponse.builder()
+            PlaceOrderResponse response = PlaceOrderResponse.builder()
                     .success(false)
                     .message("Failed to place order")
                     .errorDetails(parseErrorMessage(e))
                     .timestamp(LocalDateTime.now())
                     // --- DODANO: metrike ---
-                    .orderLatency(orderLatency)
-                    .paymentLatency(paymentLatency)
-                    .shippingLatency(shippingLatency)
+                    .orderLatency(order.latencyMillis())
+                    .paymentLatency(payment.latencyMillis())
+                    .shippingLatency(shipment.latencyMillis())
                     .totalLatency(totalLatency)
-                    .compensations(sagaRollbackCounter)
+                    .criticalPathLatency(saga.criticalPathMillis())
+                    // Broj kompenzacija = koliko rollback akcija je pozvano
+                    .compensations(compensations.size())
+                    .compensationsCompleted(completed)
                     .build();
+
+            metricsWriter.record(MetricsWriter.SAGA, response);
+            return response;
         }
     }
-    private String parseErrorMessage(Exception e) {
-        String msg = e.getMessage();
-        if (msg.contains("FINA")) return "FINA service unavailable";
-        if (msg.contains("Carrier")) return "Shipping capacity unavailable";
-        return "Unexpected error: " + msg;
+
+    // Nothing was written, so there is no saga to log and nothing to compensate
+    private PlaceOrderResponse rejected(PlaceOrderRequest request, PreValidationFailedException e, long startTotal) {
+        log.warn("Order for customer {} rejected by pre-validation: {}", request.getCustomerEmail(), e.getMessage());
+        PlaceOrderResponse response = PlaceOrderResponse.builder()
+                .success(false)
+                .message("Order rejected by pre-validation")
+                .errorDetails(parseErrorMessage(e))
+                .timestamp(LocalDateTime.now())
+                .totalLatency(latencyMetrics.stop(MetricsWriter.SAGA, LatencyMetrics.TOTAL, startTotal))
+                .build();
+
+        metricsWriter.record(MetricsWriter.SAGA, response);
+        return response;
     }
 
-    private int sagaRollbackCounter = 0;
-    private void rollback(PlaceOrderRequest request, SagaContext saga) {
-        sagaRollbackCounter = 0;
-        // Rollback in reverse order
-        if (saga.getShipment() != null) {
-            try {
-                sagaRollbackCounter++;
-                microserviceClient.cancelShipment(saga.getShipment().getId());
-            } catch (Exception e) {
-                log.error("Failed to compensate shipment", e);
-            }
-        }
+    // Brackets a step with its saga log records, so recovery knows what may need compensating after a crash
+    private <T> Supplier<T> logged(String sagaId, Step step, Supplier<T> action, Function<T, Long> id) {
+        return () -> {
+            sagaLog.stepStarted(sagaId, step);
+            T created = action.get();
+            sagaLog.stepCompleted(sagaId, step, id.apply(created));
+            return created;
+        };
+    }
 
-        if (saga.getPayment() != null) {
+    private <T> Consumer<T> compensation(String sagaId, Step step, Function<T, Long> id, Action action) {
+        return created -> {
+            Long resourceId = id.apply(created);
             try {
-                sagaRollbackCounter++;
-                microserviceClient.refundPayment(saga.getPayment().getId());
-            } catch (Exception e) {
-                log.error("Failed to compensate payment", e);
+                compensationQueue.compensate(action, resourceId, sagaId);
+            } catch (CompensationQueuedException e) {
+                sagaLog.compensationFailed(sagaId, step, resourceId);
+                throw e;
+            } catch (RuntimeException e) {
+                log.error("Failed to compensate {}", step.name().toLowerCase(), e);
+                sagaLog.compensationFailed(sagaId, step, resourceId);
+                throw e;
             }
-        }
+            sagaLog.compensated(sagaId, step, resourceId);
+        };
+    }
 
-        if (saga.getOrder() != null) {
-            try {
-                sagaRollbackCounter++;
-                microserviceClient.cancelOrder(saga.getOrder().getId());
-            } catch (Exception e) {
-                log.error("Failed to compensate order", e);
-            }
-        }
+    private String parseErrorMessage(Exception e) {
+        String msg = e.getMessage();
+        if (msg.contains("FINA")) return "FINA service unavailable";
+        if (msg.contains("Carrier")) return "Shipping capacity unavailable";
+        return "Unexpected error: " + msg;
     }
 
     private OrderResponse createOrder(PlaceOrderRequest request) {
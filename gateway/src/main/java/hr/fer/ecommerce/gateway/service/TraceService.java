@@ -0,0 +1,49 @@
+package hr.fer.ecommerce.gateway.service;
+
+import hr.fer.ecommerce.gateway.client.Downstream;
+import hr.fer.ecommerce.gateway.client.MicroserviceClient;
+import hr.fer.ecommerce.gateway.config.ServicesConfig;
+import hr.fer.ecommerce.gateway.dto.SpanResponse;
+import hr.fer.ecommerce.gateway.dto.TraceResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Each service keeps its own spans; a trace is put together on request from all of them
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TraceService {
+
+    private final SpanStore spanStore;
+    private final MicroserviceClient microserviceClient;
+    private final ServicesConfig servicesConfig;
+
+    public TraceResponse trace(String traceId) {
+        List<SpanResponse> spans = new ArrayList<>(spanStore.trace(traceId));
+        List<String> unavailable = new ArrayList<>();
+
+        for (Downstream downstream : Downstream.values()) {
+            if (downstream.config(servicesConfig) == null) {
+                continue;
+            }
+            try {
+                spans.addAll(microserviceClient.getTrace(downstream, traceId));
+            } catch (Exception e) {
+                log.warn("Failed to fetch spans of trace {} from {}: {}", traceId, downstream, e.getMessage());
+                unavailable.add(downstream.name());
+            }
+        }
+
+        spans.sort(Comparator.comparing(SpanResponse::getStartedAt));
+        return TraceResponse.builder()
+                .traceId(traceId)
+                .spans(spans)
+                .unavailableServices(unavailable)
+                .build();
+    }
+}
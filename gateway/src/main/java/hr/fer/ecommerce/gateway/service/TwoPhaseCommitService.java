@@ -1,21 +1,40 @@
 package hr.fer.ecommerce.gateway.service;
 
 import hr.fer.ecommerce.gateway.client.MicroserviceClient;
+import hr.fer.ecommerce.gateway.client.RequestDeadline;
 import hr.fer.ecommerce.gateway.client.order.CreateOrderRequest;
 import hr.fer.ecommerce.gateway.client.order.OrderResponse;
 import hr.fer.ecommerce.gateway.client.payment.CreatePaymentRequest;
 import hr.fer.ecommerce.gateway.client.payment.PaymentResponse;
+import hr.fer.ecommerce.gateway.client.product.ProductResponse;
 import hr.fer.ecommerce.gateway.client.shipment.CreateShipmentRequest;
 import hr.fer.ecommerce.gateway.client.shipment.ShipmentResponse;
+import hr.fer.ecommerce.gateway.config.TwoPhaseCommitConfig;
+import hr.fer.ecommerce.gateway.dto.CommitStatusResponse;
+import hr.fer.ecommerce.gateway.dto.ParticipantOutcome;
 import hr.fer.ecommerce.gateway.dto.PlaceOrderRequest;
 import hr.fer.ecommerce.gateway.dto.PlaceOrderResponse;
 import hr.fer.ecommerce.gateway.dto.TwoPhaseCommitContext;
+import hr.fer.ecommerce.gateway.model.CompensationTask;
+import hr.fer.ecommerce.gateway.model.CompensationTask.Action;
+import hr.fer.ecommerce.gateway.orchestration.Orchestration;
+import hr.fer.ecommerce.gateway.orchestration.Orchestrator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -23,34 +42,107 @@ import java.util.stream.Collectors;
 public class TwoPhaseCommitService {
 
     private final MicroserviceClient microserviceClient;
+    private final TwoPhaseCommitConfig twoPhaseCommitConfig;
+    private final Orchestrator orchestrator;
+    private final MetricsWriter metricsWriter;
+    private final LatencyMetrics latencyMetrics;
+    private final CoordinatorLog coordinatorLog;
+    private final OrderIdAllocator orderIdAllocator;
+    private final PreValidationService preValidationService;
+    private final CompensationQueue compensationQueue;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService participantExecutor;
+
+    private static final String COMMIT = "COMMIT";
+    private static final String ABORT = "ABORT";
 
     public PlaceOrderResponse placeOrderWith2PC(PlaceOrderRequest request) {
         log.info("Starting 2PC for customer: {}", request.getCustomerEmail());
-        TwoPhaseCommitContext context = TwoPhaseCommitContext.builder().build();
+        long totalStart = System.nanoTime();
+        try {
+            preValidationService.validate(MetricsWriter.TWO_PHASE_COMMIT, request);
+        } catch (PreValidationFailedException e) {
+            return rejected(request, e, totalStart);
+        }
+
+        TwoPhaseCommitContext context = TwoPhaseCommitContext.builder()
+                .transactionId(coordinatorLog.begin())
+                .build();
 
-        long totalStart = System.currentTimeMillis();
+        try {
+            return execute(request, context, totalStart);
+        } finally {
+            if (!context.isCommittingInBackground()) {
+                coordinatorLog.release(context);
+            }
+        }
+    }
+
+    // Only committed transactions are logged, so an aborted or unknown one has no status
+    public Optional<CommitStatusResponse> commitStatus(String transactionId) {
+        return coordinatorLog.decision(transactionId).map(decision -> {
+            List<CompensationTask> commits = compensationQueue.tasks(transactionId).stream()
+                    .filter(task -> task.getAction().isCommit())
+                    .toList();
+            return CommitStatusResponse.builder()
+                    .transactionId(transactionId)
+                    .orderId(decision.orderId())
+                    .state(commitState(decision, commits))
+                    .decidedAt(decision.decidedAt())
+                    .completedAt(decision.completedAt())
+                    .commits(commits)
+                    .build();
+        });
+    }
+
+    private PlaceOrderResponse execute(PlaceOrderRequest request, TwoPhaseCommitContext context, long totalStart) {
         long prepareLatency = 0;
         long commitLatency = 0;
         int compensations = 0;
+        List<CompensationTask> backgroundCommits = null;
 
+        // --- PREPARE ---
+        long startPrepare = System.nanoTime();
+        Orchestration prepare = orchestrator.orchestrate(MetricsWriter.TWO_PHASE_COMMIT).compensateConcurrently();
+        PrepareSteps votes = null;
         try {
-            // --- PREPARE ---
-            long startPrepare = System.currentTimeMillis();
-            preparePhase(request, context);  // priprema servise
-            prepareLatency = System.currentTimeMillis() - startPrepare;
+            votes = preparePhase(request, context.getTransactionId(), prepare);
+            prepare.run();
+            prepareLatency = latencyMetrics.stop(MetricsWriter.TWO_PHASE_COMMIT, LatencyMetrics.PREPARE, startPrepare);
+            collectVotes(votes, context);
+            checkPaymentAmount(context);
+            log.info("Prepare phase completed - all resources reserved");
+
+            // forced write of the decision; if it fails the transaction is still abortable
+            if (twoPhaseCommitConfig.isEarlyAcknowledge()) {
+                backgroundCommits = logCommitDecisionWithCommits(context);
+            } else {
+                coordinatorLog.logCommitDecision(context);
+            }
 
         } catch (Exception e) {
             log.error("Prepare phase failed: {}", e.getMessage());
 
-            // rollback svih pripremljenih resursa
-            compensations = abortPhase(context);
-
             // čak i kod fail-a želimo pripremnu fazu
-            prepareLatency = context.getOrderLatency() + context.getPaymentLatency() + context.getShippingLatency();
+            prepareLatency = latencyMetrics.stop(MetricsWriter.TWO_PHASE_COMMIT, LatencyMetrics.PREPARE, startPrepare);
+
+            // rollback svih pripremljenih resursa
+            // without votes the prepare never started (no order ID could be allocated) and there is nothing to abort
+            List<ParticipantOutcome> abortOutcomes = votes != null ? abortPhase(prepare, context) : List.of();
+            compensations = countAcknowledged(abortOutcomes);
+
+            // votes that came in late were aborted with the rest; an order that never voted is not released
+            // with the context
+            if (votes != null) {
+                collectVotes(votes, context);
+                if (context.getOrder() == null && votes.preallocatedOrderId() != null) {
+                    coordinatorLog.release(votes.preallocatedOrderId());
+                }
+            }
 
-            long totalLatency = System.currentTimeMillis() - totalStart;
+            long totalLatency = latencyMetrics.stop(MetricsWriter.TWO_PHASE_COMMIT, LatencyMetrics.TOTAL, totalStart);
 
-            return PlaceOrderResponse.builder()
+            PlaceOrderResponse response = PlaceOrderResponse.builder()
                     .success(false)
                     .message("Order preparation failed - transaction aborted")
                     .errorDetails(parseErrorMessage(e))
@@ -63,20 +155,111 @@ public class TwoPhaseCommitService {
                     .abortLatency(context.getAbortLatency())
                     .totalLatency(totalLatency)
                     .compensations(compensations)
+                    .participantOutcomes(abortOutcomes)
                     .build();
 
+            metricsWriter.record(MetricsWriter.TWO_PHASE_COMMIT, response);
+            return response;
+        }
+
+        if (backgroundCommits != null) {
+            return acknowledgeEarly(context, backgroundCommits, prepareLatency, totalStart);
         }
 
         // --- COMMIT ---
-        long startCommit = System.currentTimeMillis();
-        commitPhase(context);
-        commitLatency = System.currentTimeMillis() - startCommit;
+        long startCommit = System.nanoTime();
+        List<ParticipantOutcome> commitOutcomes = commitPhase(context);
+        commitLatency = latencyMetrics.stop(MetricsWriter.TWO_PHASE_COMMIT, LatencyMetrics.COMMIT, startCommit);
+
+        long totalLatency = latencyMetrics.stop(MetricsWriter.TWO_PHASE_COMMIT, LatencyMetrics.TOTAL, totalStart);
+        boolean allCommitted = countAcknowledged(commitOutcomes) == commitOutcomes.size();
+        if (allCommitted) {
+            coordinatorLog.markCompleted(context.getTransactionId());
+        }
+
+        PlaceOrderResponse response = decided(context, prepareLatency)
+                .success(allCommitted)
+                .message(allCommitted
+                        ? "Order placed successfully"
+                        : "Commit decided but not all participants acknowledged")
+                .errorDetails(allCommitted ? null : describeFailures(commitOutcomes))
+                .commitLatency(commitLatency)
+                .totalLatency(totalLatency)
+                .compensations(compensations)
+                .participantOutcomes(commitOutcomes)
+                .build();
 
-        long totalLatency = System.currentTimeMillis() - totalStart;
+        metricsWriter.record(MetricsWriter.TWO_PHASE_COMMIT, response);
+        return response;
+    }
 
-        return PlaceOrderResponse.builder()
+    // The decision and its commit messages are written in one transaction, so a durable decision always has its
+    // commits queued, and the queue's poller sends them if this gateway does not get to it
+    private List<CompensationTask> logCommitDecisionWithCommits(TwoPhaseCommitContext context) {
+        return transactionTemplate.execute(status -> {
+            coordinatorLog.logCommitDecision(context);
+            return List.of(
+                    compensationQueue.enqueueClaimed(Action.COMMIT_ORDER, context.getOrder().getId(), context.getTransactionId()),
+                    compensationQueue.enqueueClaimed(Action.COMMIT_PAYMENT, context.getPayment().getId(), context.getTransactionId()),
+                    compensationQueue.enqueueClaimed(Action.COMMIT_SHIPMENT, context.getShipment().getId(), context.getTransactionId()));
+        });
+    }
+
+    // The outcome is fixed once the decision is logged, so the client is answered before the commit messages go
+    // out. Statuses in the response are the prepared ones; the commit status endpoint follows the rest.
+    private PlaceOrderResponse acknowledgeEarly(TwoPhaseCommitContext context, List<CompensationTask> commits,
+                                                long prepareLatency, long totalStart) {
+        context.setCommittingInBackground(true);
+        try {
+            // the client has its answer, so its deadline no longer bounds the commit
+            RequestDeadline.call(null, () -> {
+                participantExecutor.execute(() -> completeCommit(context, commits));
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            context.setCommittingInBackground(false);
+            log.warn("2PC: Could not start the commit of transaction {}, leaving it to the compensation queue",
+                    context.getTransactionId());
+        }
+
+        PlaceOrderResponse response = decided(context, prepareLatency)
                 .success(true)
-                .message("Order placed successfully")
+                .message("Order placed - commit in progress")
+                .commitStatus(CommitStatusResponse.COMMITTING)
+                .totalLatency(latencyMetrics.stop(MetricsWriter.TWO_PHASE_COMMIT, LatencyMetrics.TOTAL, totalStart))
+                .build();
+
+        metricsWriter.record(MetricsWriter.TWO_PHASE_COMMIT, response);
+        return response;
+    }
+
+    // One attempt per queued commit message, all at once; one that fails is retried by the queue with backoff
+    private void completeCommit(TwoPhaseCommitContext context, List<CompensationTask> commits) {
+        long startCommit = System.nanoTime();
+        try {
+            Orchestration commit = orchestrator.orchestrate();
+            List<Orchestration.Step<Boolean>> attempts = commits.stream()
+                    .map(task -> commit.step(participant(task.getAction()), () -> compensationQueue.attempt(task)).independent())
+                    .toList();
+            commit.run();
+            long commitLatency = latencyMetrics.stop(MetricsWriter.TWO_PHASE_COMMIT, LatencyMetrics.COMMIT, startCommit);
+
+            // the queue marks the decision completed once its last commit row is done
+            if (attempts.stream().allMatch(attempt -> attempt.isCompleted() && attempt.value())) {
+                log.info("2PC: Transaction {} committed in the background in {} ms", context.getTransactionId(), commitLatency);
+            } else {
+                log.warn("2PC: Transaction {} not acknowledged by every participant, the compensation queue retries the rest",
+                        context.getTransactionId());
+            }
+        } finally {
+            coordinatorLog.release(context);
+        }
+    }
+
+    // Everything a response for a decided transaction reports about its participants
+    private PlaceOrderResponse.PlaceOrderResponseBuilder decided(TwoPhaseCommitContext context, long prepareLatency) {
+        return PlaceOrderResponse.builder()
+                .coordinatorTransactionId(context.getTransactionId())
                 .orderId(context.getOrder().getId())
                 .orderStatus(context.getOrder().getStatus())
                 .totalAmount(context.getOrder().getTotalAmount())
@@ -90,11 +273,43 @@ public class TwoPhaseCommitService {
                 .orderLatency(context.getOrderLatency())
                 .paymentLatency(context.getPaymentLatency())
                 .shippingLatency(context.getShippingLatency())
-                .prepareLatency(prepareLatency)
-                .commitLatency(commitLatency)
-                .totalLatency(totalLatency)
-                .compensations(compensations)
+                .prepareLatency(prepareLatency);
+    }
+
+    // A commit the queue gave up on is FAILED, although the in-doubt resolver keeps replaying the decision
+    private String commitState(CoordinatorLog.Decision decision, List<CompensationTask> commits) {
+        if (decision.completedAt() != null) {
+            return CommitStatusResponse.COMMITTED;
+        }
+        if (commits.stream().anyMatch(task -> task.getStatus() == CompensationTask.Status.DEAD)) {
+            return CommitStatusResponse.FAILED;
+        }
+        if (!commits.isEmpty() && commits.stream().allMatch(task -> task.getStatus() == CompensationTask.Status.DONE)) {
+            return CommitStatusResponse.COMMITTED;
+        }
+        return CommitStatusResponse.COMMITTING;
+    }
+
+    // Rejected before the prepare phase, so no participant holds anything to abort
+    private PlaceOrderResponse rejected(PlaceOrderRequest request, PreValidationFailedException e, long totalStart) {
+        log.warn("2PC for customer {} rejected by pre-validation: {}", request.getCustomerEmail(), e.getMessage());
+        PlaceOrderResponse response = PlaceOrderResponse.builder()
+                .success(false)
+                .message("Order rejected by pre-validation")
+                .errorDetails(parseErrorMessage(e))
+                .timestamp(LocalDateTime.now())
+                .totalLatency(latencyMetrics.stop(MetricsWriter.TWO_PHASE_COMMIT, LatencyMetrics.TOTAL, totalStart))
                 .build();
+
+        metricsWriter.record(MetricsWriter.TWO_PHASE_COMMIT, response);
+        return response;
+    }
+
+    private String describeFailures(List<ParticipantOutcome> outcomes) {
+        return outcomes.stream()
+                .filter(outcome -> !outcome.isAcknowledged())
+                .map(outcome -> outcome.getParticipant() + " " + outcome.getOutcome() + ": " + outcome.getError())
+                .collect(Collectors.joining("; "));
     }
 
     // Pomoćna metoda da iz exception-a dobiješ samo relevantnu poruku
@@ -109,110 +324,225 @@ public class TwoPhaseCommitService {
 
 
 
-    private void preparePhase(PlaceOrderRequest request, TwoPhaseCommitContext context) {
-        // --- ORDER ---
-        long startOrder = System.currentTimeMillis();
-        CreateOrderRequest orderRequest = buildOrderRequest(request);
+    // Payment and shipment prepares only need the order ID, so with parallel prepare they both follow the order.
+    // With the ID taken from a pre-allocated block nothing waits for the order prepare; payment and shipment
+    // get the amount and address in the request instead of reading the order row, which may not exist yet.
+    private PrepareSteps preparePhase(PlaceOrderRequest request, String transactionId, Orchestration prepare) {
+        Long preallocatedOrderId = twoPhaseCommitConfig.isPreallocateOrderIds() ? orderIdAllocator.nextId() : null;
+        if (preallocatedOrderId != null) {
+            coordinatorLog.register(preallocatedOrderId);
+        }
+
+        Orchestration.Step<OrderResponse> order = prepare.step(LatencyMetrics.ORDER, () -> prepareOrder(request, preallocatedOrderId))
+                .compensateWith(prepared -> compensationQueue.compensate(Action.ABORT_ORDER, prepared.getId(), transactionId));
+        Orchestration.Step<PaymentResponse> payment = prepare.step(LatencyMetrics.PAYMENT, () -> preallocatedOrderId != null
+                        ? preparePayment(request, preallocatedOrderId, orderAmount(request))
+                        : preparePayment(request, order.value().getId(), null))
+                .compensateWith(prepared -> compensationQueue.compensate(Action.ABORT_PAYMENT, prepared.getId(), transactionId));
+        Orchestration.Step<ShipmentResponse> shipment = prepare.step(LatencyMetrics.SHIPPING, () -> preallocatedOrderId != null
+                        ? prepareShipment(request, preallocatedOrderId, true)
+                        : prepareShipment(request, order.value().getId(), false))
+                .compensateWith(prepared -> compensationQueue.compensate(Action.ABORT_SHIPMENT, prepared.getId(), transactionId));
+
+        if (preallocatedOrderId == null) {
+            payment.after(order);
+            shipment.after(twoPhaseCommitConfig.isParallelPrepare() ? order : payment);
+        }
+        return new PrepareSteps(preallocatedOrderId, order, payment, shipment);
+    }
+
+    private record PrepareSteps(Long preallocatedOrderId,
+                                Orchestration.Step<OrderResponse> order,
+                                Orchestration.Step<PaymentResponse> payment,
+                                Orchestration.Step<ShipmentResponse> shipment) {
+    }
+
+    private OrderResponse prepareOrder(PlaceOrderRequest request, Long preallocatedOrderId) {
         log.info("Preparing order and reserving stock");
+        CreateOrderRequest orderRequest = buildOrderRequest(request);
+        orderRequest.setId(preallocatedOrderId);
         OrderResponse preparedOrder = microserviceClient.prepareOrder(orderRequest);
-        context.setOrder(preparedOrder);
-        context.setOrderPrepared(true);
-        context.setOrderLatency(System.currentTimeMillis() - startOrder);
-        log.info("Order prepared: ID={}, status={}, latency={}ms",
-                preparedOrder.getId(), preparedOrder.getStatus(), context.getOrderLatency());
-
-        // --- PAYMENT ---
-        long startPayment = System.currentTimeMillis();
+        if (preallocatedOrderId == null) {
+            coordinatorLog.register(preparedOrder.getId());
+        }
+        return preparedOrder;
+    }
+
+    private PaymentResponse preparePayment(PlaceOrderRequest request, Long orderId, BigDecimal amount) {
         log.info("Pre-authorizing payment");
-        CreatePaymentRequest paymentRequest = buildPaymentRequest(request, preparedOrder);
-        PaymentResponse preparedPayment = microserviceClient.preparePayment(paymentRequest);
-        context.setPayment(preparedPayment);
-        context.setPaymentPrepared(true);
-        context.setPaymentLatency(System.currentTimeMillis() - startPayment);
-        log.info("Payment prepared: ID={}, status={}, latency={}ms",
-                preparedPayment.getId(), preparedPayment.getStatus(), context.getPaymentLatency());
-
-        // --- SHIPMENT ---
-        long startShipment = System.currentTimeMillis();
+        CreatePaymentRequest paymentRequest = buildPaymentRequest(request, orderId);
+        paymentRequest.setAmount(amount);
+        return microserviceClient.preparePayment(paymentRequest);
+    }
+
+    private ShipmentResponse prepareShipment(PlaceOrderRequest request, Long orderId, boolean withAddress) {
         log.info("Reserving shipment capacity");
-        CreateShipmentRequest shipmentRequest = buildShipmentRequest(request, preparedOrder);
-        ShipmentResponse preparedShipment = microserviceClient.prepareShipment(shipmentRequest);
-        context.setShipment(preparedShipment);
-        context.setShipmentPrepared(true);
-        context.setShippingLatency(System.currentTimeMillis() - startShipment);
-        log.info("Shipment prepared: ID={}, status={}, latency={}ms",
-                preparedShipment.getId(), preparedShipment.getStatus(), context.getShippingLatency());
-
-        log.info("Prepare phase completed - all resources reserved");
-    }
-
-    private void commitPhase(TwoPhaseCommitContext context) {
-        // --- ORDER ---
-        long startOrderCommit = System.currentTimeMillis();
-        log.info("Committing order");
-        OrderResponse committedOrder = microserviceClient.commitOrder(context.getOrder().getId());
-        context.setOrder(committedOrder);
-        context.setOrderCommitted(true);
-        context.addToTotalLatency(System.currentTimeMillis() - startOrderCommit);
-        log.info("Order committed: ID={}, latency={}ms", context.getOrder().getId(), System.currentTimeMillis() - startOrderCommit);
-
-        // --- PAYMENT ---
-        long startPaymentCommit = System.currentTimeMillis();
-        log.info("Committing payment");
-        PaymentResponse committedPayment = microserviceClient.commitPayment(context.getPayment().getId());
-        context.setPayment(committedPayment);
-        context.setPaymentCommitted(true);
-        context.addToTotalLatency(System.currentTimeMillis() - startPaymentCommit);
-        log.info("Payment committed: ID={}, latency={}ms", context.getPayment().getId(), System.currentTimeMillis() - startPaymentCommit);
-
-        // --- SHIPMENT ---
-        long startShipmentCommit = System.currentTimeMillis();
-        log.info("Committing shipment");
-        ShipmentResponse committedShipment = microserviceClient.commitShipment(context.getShipment().getId());
-        context.setShipment(committedShipment);
-        context.setShipmentCommitted(true);
-        context.addToTotalLatency(System.currentTimeMillis() - startShipmentCommit);
-        log.info("Shipment committed: ID={}, latency={}ms", context.getShipment().getId(), System.currentTimeMillis() - startShipmentCommit);
-
-        log.info("Commit phase completed");
-    }
-
-
-    private int abortPhase(TwoPhaseCommitContext context) {
-        long startAbort = System.currentTimeMillis();
-        int compensations = 0;
+        CreateShipmentRequest shipmentRequest = buildShipmentRequest(request, orderId);
+        if (withAddress) {
+            shipmentRequest.setCustomerName(request.getCustomerName());
+            shipmentRequest.setCustomerEmail(request.getCustomerEmail());
+            shipmentRequest.setShippingAddress(request.getShippingAddress());
+        }
+        return microserviceClient.prepareShipment(shipmentRequest);
+    }
 
-        if (context.isShipmentPrepared() && context.getShipment() != null) {
-            try {
-                microserviceClient.abortShipment(context.getShipment().getId());
-                compensations++;
-            } catch (Exception e) {
-                log.error("Failed to abort shipment: {}", e.getMessage());
-            }
+    // A participant counts as prepared only if it voted yes; latencies are there for every prepare that ran
+    private void collectVotes(PrepareSteps votes, TwoPhaseCommitContext context) {
+        context.setOrderLatency(votes.order().latencyMillis());
+        context.setPaymentLatency(votes.payment().latencyMillis());
+        context.setShippingLatency(votes.shipment().latencyMillis());
+
+        if (votes.order().isCompleted()) {
+            context.setOrder(votes.order().value());
+            context.setOrderPrepared(true);
+            log.info("Order prepared: ID={}, status={}, latency={}ms",
+                    context.getOrder().getId(), context.getOrder().getStatus(), context.getOrderLatency());
         }
+        if (votes.payment().isCompleted()) {
+            context.setPayment(votes.payment().value());
+            context.setPaymentPrepared(true);
+            log.info("Payment prepared: ID={}, status={}, latency={}ms",
+                    context.getPayment().getId(), context.getPayment().getStatus(), context.getPaymentLatency());
+        }
+        if (votes.shipment().isCompleted()) {
+            context.setShipment(votes.shipment().value());
+            context.setShipmentPrepared(true);
+            log.info("Shipment prepared: ID={}, status={}, latency={}ms",
+                    context.getShipment().getId(), context.getShipment().getStatus(), context.getShippingLatency());
+        }
+    }
 
-        if (context.isPaymentPrepared() && context.getPayment() != null) {
-            try {
-                microserviceClient.abortPayment(context.getPayment().getId());
-                compensations++;
-            } catch (Exception e) {
-                log.error("Failed to abort payment: {}", e.getMessage());
-            }
+    // With pre-allocated IDs the payment is prepared for an amount priced here, before the order exists. The total
+    // the order service computed is authoritative, so a payment for any other amount is a no vote.
+    private void checkPaymentAmount(TwoPhaseCommitContext context) {
+        BigDecimal total = context.getOrder().getTotalAmount();
+        BigDecimal amount = context.getPayment().getAmount();
+        if (total == null || amount == null || total.compareTo(amount) != 0) {
+            throw new IllegalStateException("Payment amount " + amount + " does not match order total " + total);
         }
+    }
 
-        if (context.isOrderPrepared() && context.getOrder() != null) {
-            try {
-                microserviceClient.abortOrder(context.getOrder().getId());
-                compensations++;
-            } catch (Exception e) {
-                log.error("Failed to abort order: {}", e.getMessage());
-            }
+    // Priced the same way the order service prices the order, from one batch product lookup
+    private BigDecimal orderAmount(PlaceOrderRequest request) {
+        Map<Long, ProductResponse> products = microserviceClient.getProducts(request.getOrderItems().stream()
+                        .map(PlaceOrderRequest.OrderItemRequest::getProductId)
+                        .distinct()
+                        .toList()).stream()
+                .collect(Collectors.toMap(ProductResponse::getId, Function.identity()));
+
+        return request.getOrderItems().stream()
+                .map(item -> {
+                    ProductResponse product = products.get(item.getProductId());
+                    if (product == null) {
+                        throw new IllegalArgumentException("Product not found: " + item.getProductId());
+                    }
+                    return product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+                })
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    // The decision is made, so the three commit messages are independent of each other: one failing or timing
+    // out must not hold back the others. A late reply to a timed-out commit is ignored.
+    private List<ParticipantOutcome> commitPhase(TwoPhaseCommitContext context) {
+        log.info("Committing order, payment and shipment");
+        Duration timeout = twoPhaseCommitConfig.getParticipantTimeout();
+        Orchestration commit = orchestrator.orchestrate();
+        Orchestration.Step<OrderResponse> order = commit.step("order",
+                () -> microserviceClient.commitOrder(context.getOrder().getId())).timeout(timeout).independent();
+        Orchestration.Step<PaymentResponse> payment = commit.step("payment",
+                () -> microserviceClient.commitPayment(context.getPayment().getId())).timeout(timeout).independent();
+        Orchestration.Step<ShipmentResponse> shipment = commit.step("shipment",
+                () -> microserviceClient.commitShipment(context.getShipment().getId())).timeout(timeout).independent();
+        commit.run();
+
+        if (order.isCompleted()) {
+            context.setOrder(order.value());
+            context.setOrderCommitted(true);
+        }
+        if (payment.isCompleted()) {
+            context.setPayment(payment.value());
+            context.setPaymentCommitted(true);
         }
+        if (shipment.isCompleted()) {
+            context.setShipment(shipment.value());
+            context.setShipmentCommitted(true);
+        }
+
+        List<ParticipantOutcome> outcomes = Stream.of(order, payment, shipment)
+                .map(step -> outcome(step.name(), COMMIT, ParticipantOutcome.COMMITTED, step.state(), step.latencyMillis(), step.error()))
+                .toList();
+        outcomes.forEach(outcome -> context.addToTotalLatency(outcome.getLatency()));
+
+        log.info("Commit phase completed: {}", outcomes);
+        return outcomes;
+    }
+
+    // Every prepared participant is aborted at once, the ones that voted yes after the failure included.
+    // Aborts go out through the compensation queue: one only enqueued is reported as QUEUED, and one whose
+    // inline attempt failed as FAILED while the queue retries it.
+    private List<ParticipantOutcome> abortPhase(Orchestration prepare, TwoPhaseCommitContext context) {
+        long startAbort = System.nanoTime();
+        List<ParticipantOutcome> outcomes = prepare.compensate().stream()
+                .map(abort -> outcome(participant(abort.step()), ABORT, ParticipantOutcome.ABORTED,
+                        abort.state(), abort.latencyMillis(), abort.error()))
+                .toList();
+
+        context.setAbortLatency(latencyMetrics.stop(MetricsWriter.TWO_PHASE_COMMIT, LatencyMetrics.ABORT, startAbort));
+        log.info("Abort phase completed in {} ms with {} compensations",
+                context.getAbortLatency(), countAcknowledged(outcomes));
+
+        return outcomes;
+    }
+
+    // Prepare steps are named after their latency metrics, outcomes after the participant
+    private String participant(String step) {
+        return switch (step) {
+            case LatencyMetrics.ORDER -> "order";
+            case LatencyMetrics.PAYMENT -> "payment";
+            default -> "shipment";
+        };
+    }
+
+    private String participant(Action commit) {
+        return switch (commit.target()) {
+            case ORDER -> "order";
+            case PAYMENT -> "payment";
+            default -> "shipment";
+        };
+    }
 
-        context.setAbortLatency(System.currentTimeMillis() - startAbort);
-        log.info("Abort phase completed in {} ms with {} compensations", context.getAbortLatency(), compensations);
+    private ParticipantOutcome outcome(String participant, String phase, String successOutcome,
+                                       Orchestration.State state, long latency, Throwable error) {
+        ParticipantOutcome.ParticipantOutcomeBuilder outcome = ParticipantOutcome.builder()
+                .participant(participant)
+                .phase(phase)
+                .latency(latency);
+
+        switch (state) {
+            case COMPLETED -> {
+                log.info("2PC {}: {} acknowledged, latency={}ms", phase, participant, latency);
+                return outcome.outcome(successOutcome).build();
+            }
+            case TIMED_OUT -> {
+                log.error("2PC {}: {} did not respond within {}ms", phase, participant, latency);
+                return outcome.outcome(ParticipantOutcome.TIMED_OUT).error(error.getMessage()).build();
+            }
+            default -> {
+                if (error instanceof CompensationQueuedException && error.getCause() == null) {
+                    log.info("2PC {}: {} queued", phase, participant);
+                    return outcome.outcome(ParticipantOutcome.QUEUED).build();
+                }
+                String message = error != null ? error.getMessage() : "not sent";
+                log.error("2PC {}: {} failed: {}", phase, participant, message);
+                return outcome.outcome(ParticipantOutcome.FAILED).error(message).build();
+            }
+        }
+    }
 
-        return compensations;
+    private int countAcknowledged(List<ParticipantOutcome> outcomes) {
+        return (int) outcomes.stream()
+                .filter(ParticipantOutcome::isAcknowledged)
+                .count();
     }
 
 
@@ -230,9 +560,9 @@ public class TwoPhaseCommitService {
                 .build();
     }
 
-    private CreatePaymentRequest buildPaymentRequest(PlaceOrderRequest request, OrderResponse order) {
+    private CreatePaymentRequest buildPaymentRequest(PlaceOrderRequest request, Long orderId) {
         return CreatePaymentRequest.builder()
-                .orderId(order.getId())
+                .orderId(orderId)
                 .paidCustomerName(request.getCustomerName())
                 .paidCustomerEmail(request.getCustomerEmail())
                 .paymentMethod(request.getPaymentMethod())
@@ -241,9 +571,9 @@ public class TwoPhaseCommitService {
                 .build();
     }
 
-    private CreateShipmentRequest buildShipmentRequest(PlaceOrderRequest request, OrderResponse order) {
+    private CreateShipmentRequest buildShipmentRequest(PlaceOrderRequest request, Long orderId) {
         return CreateShipmentRequest.builder()
-                .orderId(order.getId())
+                .orderId(orderId)
                 .carrier(request.getCarrier())
                 .estimatedDeliveryDate(LocalDateTime.now().plusDays(7))
                 .build();
@@ -0,0 +1,12 @@
+CREATE TABLE saga_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    saga_id VARCHAR(36) NOT NULL,
+    step VARCHAR(20) NOT NULL,
+    event VARCHAR(30) NOT NULL,
+    resource_id BIGINT,
+    payload CLOB,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_saga_log_saga_id ON saga_log (saga_id);
+CREATE INDEX idx_saga_log_created_at ON saga_log (created_at);
@@ -0,0 +1,14 @@
+CREATE TABLE coordinator_log (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    transaction_id VARCHAR(36) NOT NULL,
+    decision VARCHAR(10) NOT NULL,
+    order_id BIGINT NOT NULL,
+    payment_id BIGINT NOT NULL,
+    shipment_id BIGINT NOT NULL,
+    decided_at TIMESTAMP NOT NULL,
+    completed_at TIMESTAMP
+);
+
+CREATE UNIQUE INDEX idx_coordinator_log_transaction_id ON coordinator_log (transaction_id);
+CREATE INDEX idx_coordinator_log_order_id ON coordinator_log (order_id);
+CREATE INDEX idx_coordinator_log_completed_at ON coordinator_log (completed_at);
@@ -0,0 +1,8 @@
+CREATE TABLE idempotency_key (
+    idempotency_key VARCHAR(300) PRIMARY KEY,
+    request_hash VARCHAR(64) NOT NULL,
+    response CLOB NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_idempotency_key_created_at ON idempotency_key (created_at);
@@ -0,0 +1,15 @@
+CREATE TABLE compensation_queue (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    action VARCHAR(20) NOT NULL,
+    resource_id BIGINT NOT NULL,
+    reference VARCHAR(36),
+    status VARCHAR(10) NOT NULL,
+    attempts INT NOT NULL,
+    next_attempt_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_compensation_queue_status_next_attempt ON compensation_queue (status, next_attempt_at);
+CREATE INDEX idx_compensation_queue_updated_at ON compensation_queue (updated_at);
@@ -1,10 +1,18 @@
 package hr.fer.ecommerce.order.client;
 
+import hr.fer.ecommerce.order.config.RequestDeadline;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
 @Component
 @RequiredArgsConstructor
@@ -16,22 +24,49 @@ public class ProductClient {
     @Value("${product.service.url:http://localhost:8081}")
     private String productServiceUrl;
 
+    @Value("${product.service.batch-size:100}")
+    private int maxBatchSize;
+
     public ProductDto getProduct(Long productId) {
         String url = productServiceUrl + "/api/products/" + productId;
         log.info("Fetching product from: {}", url);
         return restTemplate.getForObject(url, ProductDto.class);
     }
 
+    // Fetches all products in as few round trips as possible; unknown IDs fail with 404 just like getProduct
+    public Map<Long, ProductDto> getProducts(Collection<Long> productIds) {
+        List<Long> uniqueIds = List.copyOf(new LinkedHashSet<>(productIds));
+        Map<Long, ProductDto> products = new HashMap<>();
+
+        for (int from = 0; from < uniqueIds.size(); from += maxBatchSize) {
+            List<Long> batch = uniqueIds.subList(from, Math.min(from + maxBatchSize, uniqueIds.size()));
+            String url = UriComponentsBuilder.fromUriString(productServiceUrl + "/api/products/batch")
+                    .queryParam("ids", batch)
+                    .toUriString();
+            log.info("Fetching {} products from: {}", batch.size(), url);
+
+            ProductDto[] response = restTemplate.getForObject(url, ProductDto[].class);
+            if (response != null) {
+                for (ProductDto product : response) {
+                    products.put(product.getId(), product);
+                }
+            }
+        }
+
+        return products;
+    }
+
     public void reserveStock(StockReservationRequest request) {
         String url = productServiceUrl + "/api/products/stock/reserve";
         log.info("Reserving stock at: {}", url);
         restTemplate.postForObject(url, request, Void.class);
     }
 
+    // Releases run without the request deadline, otherwise stock reserved just before it expired would leak
     public void releaseStock(StockReservationRequest request) {
         String url = productServiceUrl + "/api/products/stock/release";
         log.info("Releasing stock at: {}", url);
-        restTemplate.postForObject(url, request, Void.class);
+        RequestDeadline.runWithout(() -> restTemplate.postForObject(url, request, Void.class));
     }
 }
 
@@ -0,0 +1,45 @@
+package hr.fer.ecommerce.order.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Rejects a request whose deadline has already passed before the controller touches the database
+@Component
+public class RequestDeadlineInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // afterCompletion only runs once preHandle has returned, so nothing left on this pooled thread may carry over
+        RequestDeadline.clear();
+        Long deadline = parse(request.getHeader(RequestDeadline.HEADER));
+        if (deadline != null) {
+            RequestDeadline.set(deadline);
+            try {
+                RequestDeadline.check();
+            } catch (RuntimeException e) {
+                RequestDeadline.clear();
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestDeadline.clear();
+    }
+
+    // A malformed header is ignored like a missing one; the request then runs without a deadline
+    private static Long parse(String header) {
+        if (header == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package hr.fer.ecommerce.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+// Only used when virtual threads are on (spring.threads.virtual.enabled, set by the virtual-threads profile)
+@Configuration
+@ConfigurationProperties(prefix = "virtual-threads")
+@Data
+public class VirtualThreadsConfig {
+    // Threads allowed at the database at once; 0 uses the Hikari maximum pool size
+    private int dbPermits = 0;
+
+    // Wait for a permit before the call fails, like Hikari's connection timeout
+    private Duration dbPermitTimeout = Duration.ofSeconds(30);
+
+    private PinningConfig pinning = new PinningConfig();
+
+    @Data
+    public static class PinningConfig {
+        // Streams JFR's jdk.VirtualThreadPinned events and reports them per call site
+        private boolean enabled = true;
+
+        // Shorter pins are not recorded
+        private Duration threshold = Duration.ofMillis(20);
+
+        // Distinct call sites kept; pins at further sites are only counted
+        private int maxSites = 100;
+    }
+}
@@ -1,6 +1,7 @@
 package hr.fer.ecommerce.order.controller;
 
 import hr.fer.ecommerce.order.dto.OrderDto;
+import hr.fer.ecommerce.order.dto.OrderIdBlockDto;
 import hr.fer.ecommerce.order.dto.OrderRequestDto;
 import hr.fer.ecommerce.order.dto.OrderStatusUpdateDto;
 import hr.fer.ecommerce.order.model.OrderStatus;
@@ -52,6 +53,11 @@ public class OrderController {
         return ResponseEntity.status(HttpStatus.CREATED).body(order);
     }
 
+    @PostMapping("/id-blocks")
+    public ResponseEntity<OrderIdBlockDto> allocateIdBlock() {
+        return ResponseEntity.status(HttpStatus.CREATED).body(orderService.allocateIdBlock());
+    }
+
     @PatchMapping("/{id}/status")
     public ResponseEntity<OrderDto> updateOrderStatus(
             @PathVariable Long id,
@@ -0,0 +1,33 @@
+package hr.fer.ecommerce.order.controller;
+
+import hr.fer.ecommerce.order.dto.SpanDto;
+import hr.fer.ecommerce.order.service.SpanStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping(TraceController.PATH)
+@RequiredArgsConstructor
+public class TraceController {
+
+    public static final String PATH = "/api/traces";
+
+    private final SpanStore spanStore;
+
+    @GetMapping
+    public ResponseEntity<List<SpanDto>> getRecentSpans(@RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(spanStore.recent(limit));
+    }
+
+    @GetMapping("/{traceId}")
+    public ResponseEntity<List<SpanDto>> getTrace(@PathVariable String traceId) {
+        return ResponseEntity.ok(spanStore.trace(traceId));
+    }
+}
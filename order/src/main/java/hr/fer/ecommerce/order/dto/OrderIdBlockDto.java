@@ -0,0 +1,15 @@
+package hr.fer.ecommerce.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderIdBlockDto {
+    private Long firstId;
+    private int size;
+}
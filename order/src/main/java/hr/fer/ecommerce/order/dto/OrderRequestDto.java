@@ -15,6 +15,9 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 public class OrderRequestDto {
+    // taken from an allocated ID block; assigned by the service when empty
+    private Long id;
+
     @NotBlank
     private String customerName;
 
@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -19,8 +21,16 @@ import java.util.List;
 @Builder
 public class Order {
 
+    // must match the increment of order_id_seq
+    public static final int ID_BLOCK_SIZE = 100;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "order_id")
+    @GenericGenerator(name = "order_id", type = OrderIdGenerator.class, parameters = {
+            @Parameter(name = "sequence_name", value = "order_id_seq"),
+            @Parameter(name = "increment_size", value = "" + ID_BLOCK_SIZE),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
 
     @Column(nullable = false)
@@ -0,0 +1,19 @@
+package hr.fer.ecommerce.order.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.EventType;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+// Sequence generator that keeps an ID the caller already set, which must come from an allocated ID block
+public class OrderIdGenerator extends SequenceStyleGenerator {
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return currentValue != null ? currentValue : generate(session, owner);
+    }
+}
@@ -5,6 +5,9 @@ import hr.fer.ecommerce.order.model.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,5 +16,16 @@ import java.util.List;
 public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findByCustomerEmail(String customerEmail, Pageable pageable);
     List<Order> findByStatus(OrderStatus status);
+
+    // first ID of a block of Order.ID_BLOCK_SIZE IDs nobody else will be given
+    @Query(value = "SELECT NEXT VALUE FOR order_id_seq", nativeQuery = true)
+    Long nextIdBlock();
+
+    @Modifying
+    @Query(value = "INSERT INTO order_id_block (first_id, allocated_at) VALUES (:firstId, CURRENT_TIMESTAMP)", nativeQuery = true)
+    void recordIdBlock(@Param("firstId") Long firstId);
+
+    @Query(value = "SELECT COUNT(*) > 0 FROM order_id_block WHERE first_id = :firstId", nativeQuery = true)
+    boolean isAllocatedIdBlock(@Param("firstId") Long firstId);
 }
 
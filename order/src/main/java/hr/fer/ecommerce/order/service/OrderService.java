@@ -4,7 +4,9 @@ import hr.fer.ecommerce.order.client.ProductClient;
 import hr.fer.ecommerce.order.client.ProductDto;
 import hr.fer.ecommerce.order.client.StockReservationRequest;
 import hr.fer.ecommerce.order.client.StockValidationRequest;
+import hr.fer.ecommerce.order.config.RequestDeadline;
 import hr.fer.ecommerce.order.dto.OrderDto;
+import hr.fer.ecommerce.order.dto.OrderIdBlockDto;
 import hr.fer.ecommerce.order.dto.OrderItemRequestDto;
 import hr.fer.ecommerce.order.dto.OrderRequestDto;
 import hr.fer.ecommerce.order.dto.OrderStatusUpdateDto;
@@ -16,6 +18,7 @@ import hr.fer.ecommerce.order.model.OrderStatus;
 import hr.fer.ecommerce.order.repository.OrderRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -24,6 +27,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -60,17 +64,32 @@ public class OrderService {
                 .toList();
     }
 
+    // Hi-lo allocation: the caller can assign these IDs itself, e.g. to prepare the order concurrently
+    // with participants that need its ID
+    @Transactional
+    public OrderIdBlockDto allocateIdBlock() {
+        Long firstId = orderRepository.nextIdBlock();
+        orderRepository.recordIdBlock(firstId);
+        log.info("Allocated order ID block {}-{}", firstId, firstId + Order.ID_BLOCK_SIZE - 1);
+        return OrderIdBlockDto.builder()
+                .firstId(firstId)
+                .size(Order.ID_BLOCK_SIZE)
+                .build();
+    }
+
     @Transactional
     public OrderDto createOrder(OrderRequestDto request) {
         log.info("Starting order creation for customer: {}", request.getCustomerEmail());
         long startTime = System.nanoTime();
         log.info("SAGA | START createOrder for customer: {}", request.getCustomerEmail());
 
+        rejectUnallocatedId(request);
         StockReservationRequest stockRequest = buildStockReservationRequest(request);
         productClient.reserveStock(stockRequest);
 
         try {
             Order order = Order.builder()
+                    .id(request.getId())
                     .customerName(request.getCustomerName())
                     .customerEmail(request.getCustomerEmail())
                     .shippingAddress(request.getShippingAddress())
@@ -78,28 +97,10 @@ public class OrderService {
                     .status(OrderStatus.CONFIRMED)
                     .build();
 
-            BigDecimal totalAmount = BigDecimal.ZERO;
-
-            for (OrderItemRequestDto itemRequest : request.getOrderItems()) {
-                ProductDto product = productClient.getProduct(itemRequest.getProductId());
-
-                BigDecimal subtotal = product.getPrice()
-                        .multiply(BigDecimal.valueOf(itemRequest.getQuantity()));
-
-                OrderItem orderItem = OrderItem.builder()
-                        .productId(product.getId())
-                        .productName(product.getName())
-                        .quantity(itemRequest.getQuantity())
-                        .unitPrice(product.getPrice())
-                        .subtotal(subtotal)
-                        .build();
-
-                order.addOrderItem(orderItem);
-                totalAmount = totalAmount.add(subtotal);
-            }
-
-            order.setTotalAmount(totalAmount);
-            Order savedOrder = orderRepository.save(order);
+            addPricedOrderItems(order, request);
+            // past the deadline the caller no longer waits for this order, so the stock goes back instead
+            RequestDeadline.check();
+            Order savedOrder = saveNew(order);
 
             log.info("Created order: {}", savedOrder.getId());
             long durationMs = (System.nanoTime() - startTime) / 1_000_000;
@@ -114,6 +115,57 @@ public class OrderService {
         }
     }
 
+    // Checked before stock is reserved, so an ID the caller made up fails without holding any stock. Blocks start
+    // at multiples of the block size, the sequence's start and increment.
+    private void rejectUnallocatedId(OrderRequestDto request) {
+        Long id = request.getId();
+        if (id != null && !orderRepository.isAllocatedIdBlock(id - Math.floorMod(id, Order.ID_BLOCK_SIZE))) {
+            throw new IllegalArgumentException("Order ID " + id + " is not from an allocated ID block");
+        }
+    }
+
+    // Between two requests for the same ID the primary key decides. Flushed here, so a duplicate fails inside
+    // the caller's try and its stock is released.
+    private Order saveNew(Order order) {
+        try {
+            return orderRepository.saveAndFlush(order);
+        } catch (DataIntegrityViolationException e) {
+            if (order.getId() == null) {
+                throw e;
+            }
+            throw new IllegalArgumentException("Order ID " + order.getId() + " is already taken", e);
+        }
+    }
+
+    // Prices every item from a single batch lookup instead of one product call per line
+    private void addPricedOrderItems(Order order, OrderRequestDto request) {
+        Map<Long, ProductDto> products = productClient.getProducts(request.getOrderItems().stream()
+                .map(OrderItemRequestDto::getProductId)
+                .toList());
+
+        BigDecimal totalAmount = BigDecimal.ZERO;
+
+        for (OrderItemRequestDto itemRequest : request.getOrderItems()) {
+            ProductDto product = products.get(itemRequest.getProductId());
+
+            BigDecimal subtotal = product.getPrice()
+                    .multiply(BigDecimal.valueOf(itemRequest.getQuantity()));
+
+            OrderItem orderItem = OrderItem.builder()
+                    .productId(product.getId())
+                    .productName(product.getName())
+                    .quantity(itemRequest.getQuantity())
+                    .unitPrice(product.getPrice())
+                    .subtotal(subtotal)
+                    .build();
+
+            order.addOrderItem(orderItem);
+            totalAmount = totalAmount.add(subtotal);
+        }
+
+        order.setTotalAmount(totalAmount);
+    }
+
     private StockReservationRequest buildStockReservationRequest(OrderRequestDto request) {
         List<StockValidationRequest> items = request.getOrderItems().stream()
                 .map(item -> StockValidationRequest.builder()
@@ -200,45 +252,37 @@ public class OrderService {
                         .collect(Collectors.toList()))
                 .build();
 
+        rejectUnallocatedId(request);
         productClient.reserveStock(stockRequest);
         log.info("Stock reserved for all order items");
 
-        Order order = Order.builder()
-                .customerName(request.getCustomerName())
-                .customerEmail(request.getCustomerEmail())
-                .shippingAddress(request.getShippingAddress())
-                .orderItems(new ArrayList<>())
-                .status(OrderStatus.PREPARED)
-                .build();
-
-        BigDecimal totalAmount = BigDecimal.ZERO;
-
-        for (OrderItemRequestDto itemRequest : request.getOrderItems()) {
-            ProductDto product = productClient.getProduct(itemRequest.getProductId());
-
-            BigDecimal subtotal = product.getPrice()
-                    .multiply(BigDecimal.valueOf(itemRequest.getQuantity()));
-
-            OrderItem orderItem = OrderItem.builder()
-                    .productId(product.getId())
-                    .productName(product.getName())
-                    .quantity(itemRequest.getQuantity())
-                    .unitPrice(product.getPrice())
-                    .subtotal(subtotal)
+        try {
+            Order order = Order.builder()
+                    .id(request.getId())
+                    .customerName(request.getCustomerName())
+                    .customerEmail(request.getCustomerEmail())
+                    .shippingAddress(request.getShippingAddress())
+                    .orderItems(new ArrayList<>())
+                    .status(OrderStatus.PREPARED)
                     .build();
 
-            order.addOrderItem(orderItem);
-            totalAmount = totalAmount.add(subtotal);
-        }
+            addPricedOrderItems(order, request);
+            // past the deadline the caller no longer waits for this order, so the stock goes back instead
+            RequestDeadline.check();
+            Order savedOrder = saveNew(order);
 
-        order.setTotalAmount(totalAmount);
-        Order savedOrder = orderRepository.save(order);
+            log.info("Prepared order: {}", savedOrder.getId());
+            long durationMs = (System.nanoTime() - startTime) / 1_000_000;
+            log.info("2PC | DURATION prepareOrder = {} ms", durationMs);
 
-        log.info("Prepared order: {}", savedOrder.getId());
-        long durationMs = (System.nanoTime() - startTime) / 1_000_000;
-        log.info("2PC | DURATION prepareOrder = {} ms", durationMs);
+            return OrderMapper.toDTO(savedOrder);
 
-        return OrderMapper.toDTO(savedOrder);
+        } catch (Exception e) {
+            // no prepared order is left behind for the coordinator to abort, so the stock is released here
+            log.error("Order preparation failed, releasing reserved stock: {}", e.getMessage(), e);
+            productClient.releaseStock(stockRequest);
+            throw e;
+        }
     }
 
     @Transactional
@@ -251,6 +295,12 @@ public class OrderService {
         Order order = orderRepository.findById(id)
                 .orElseThrow(() -> new OrderNotFoundException(id));
 
+        // a retried commit whose first attempt went through
+        if (order.getStatus() == OrderStatus.CONFIRMED) {
+            log.info("2PC COMMIT: Order {} already committed", id);
+            return OrderMapper.toDTO(order);
+        }
+
         if (order.getStatus() != OrderStatus.PREPARED) {
             throw new IllegalStateException(
                 "Cannot commit order in status: " + order.getStatus() + ". Expected PREPARED."
@@ -0,0 +1,5 @@
+-- Order IDs are handed out in blocks of 100 from a sequence (hi-lo), both to this service and to
+-- callers that need an order ID before the order is inserted
+ALTER TABLE orders ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE order_id_seq START WITH 100 INCREMENT BY 100;
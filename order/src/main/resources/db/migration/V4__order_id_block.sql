@@ -0,0 +1,5 @@
+-- Every ID block handed out to a caller, so an order ID set by a caller can be checked against them
+CREATE TABLE order_id_block (
+    first_id BIGINT PRIMARY KEY,
+    allocated_at TIMESTAMP NOT NULL
+);
@@ -2,14 +2,44 @@ package hr.fer.ecommerce.payment.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
 @Configuration
 public class RestTemplateConfig {
 
+    // The callee enforces the same deadline, so waiting slightly past it returns its definite answer
+    // instead of leaving a late write behind with nobody to undo it
+    private static final long RESPONSE_GRACE_MILLIS = 250;
+
+    // Outbound calls carry the caller's deadline on and never wait past it
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(TracingInterceptor tracingInterceptor) {
+        RestTemplate restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory() {
+            @Override
+            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                super.prepareConnection(connection, httpMethod);
+                Long remaining = RequestDeadline.remainingMillis();
+                if (remaining != null) {
+                    int timeout = (int) Math.max(1, remaining);
+                    connection.setConnectTimeout(timeout);
+                    connection.setReadTimeout(timeout + (int) RESPONSE_GRACE_MILLIS);
+                }
+            }
+        });
+
+        restTemplate.getInterceptors().add(tracingInterceptor);
+        restTemplate.getInterceptors().add((request, body, execution) -> {
+            RequestDeadline.check();
+            Long deadline = RequestDeadline.current();
+            if (deadline != null) {
+                request.getHeaders().set(RequestDeadline.HEADER, String.valueOf(deadline));
+            }
+            return execution.execute(request, body);
+        });
+        return restTemplate;
     }
 }
-
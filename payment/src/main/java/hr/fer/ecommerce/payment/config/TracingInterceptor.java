@@ -0,0 +1,62 @@
+package hr.fer.ecommerce.payment.config;
+
+import hr.fer.ecommerce.payment.dto.SpanDto;
+import hr.fer.ecommerce.payment.service.SpanStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+
+// Records a client span for each outbound call made inside a traced request and passes the trace on.
+// The span ends when the response headers arrive; reading the body is left to the caller's span.
+@Component
+@RequiredArgsConstructor
+public class TracingInterceptor implements ClientHttpRequestInterceptor {
+
+    private final SpanStore spanStore;
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        TraceContext parent = TraceContext.current();
+        if (parent == null) {
+            return execution.execute(request, body);
+        }
+
+        String spanId = TraceContext.newSpanId();
+        request.getHeaders().set(TraceContext.HEADER, parent.header(spanId));
+
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        Integer status = null;
+        String error = null;
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            status = response.getStatusCode().value();
+            return response;
+        } catch (IOException | RuntimeException e) {
+            error = e.getMessage();
+            throw e;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            parent.recordOutbound(nanos);
+            spanStore.record(SpanDto.builder()
+                    .traceId(parent.getTraceId())
+                    .spanId(spanId)
+                    .parentSpanId(parent.getSpanId())
+                    .kind(SpanDto.CLIENT)
+                    .name(request.getMethod() + " " + request.getURI().getPath())
+                    .peer(request.getURI().getAuthority())
+                    .status(status)
+                    .error(error)
+                    .startedAt(startedAt)
+                    .durationMs(TraceContext.millis(nanos))
+                    .build());
+        }
+    }
+}
@@ -9,6 +9,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -30,5 +32,8 @@ public class PaymentRequestDto {
     private String cardLastFourDigits;
 
     private String paymentProvider;
+
+    // set by a 2PC coordinator that prepares the payment before the order row exists; read from the order otherwise
+    private BigDecimal amount;
 }
 
@@ -0,0 +1,7 @@
+package hr.fer.ecommerce.payment.exception;
+
+public class DeadlineExceededException extends RuntimeException {
+    public DeadlineExceededException(long overdueMillis) {
+        super("Request deadline exceeded by " + overdueMillis + " ms");
+    }
+}
@@ -19,6 +19,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -216,7 +217,9 @@ public class PaymentService {
 
         validatePaymentReadiness(request);
 
-        OrderDto order = orderClient.getOrder(request.getOrderId());
+        BigDecimal amount = request.getAmount() != null
+                ? request.getAmount()
+                : orderClient.getOrder(request.getOrderId()).getTotalAmount();
 
         if (!financialAgencyService.validateFinaAvailability()) {
             throw new FinancialAgencyUnavailableException();
@@ -233,7 +236,7 @@ public class PaymentService {
                 .orderId(request.getOrderId())
                 .paidCustomerName(request.getPaidCustomerName())
                 .paidCustomerEmail(request.getPaidCustomerEmail())
-                .paidAmount(order.getTotalAmount())
+                .paidAmount(amount)
                 .paymentMethod(request.getPaymentMethod())
                 .status(PaymentStatus.PRE_AUTHORIZED)
                 .paymentProvider(request.getPaymentProvider() != null ? request.getPaymentProvider() : "FINA")
@@ -255,6 +258,12 @@ public class PaymentService {
         Payment payment = paymentRepository.findById(id)
                 .orElseThrow(() -> new PaymentNotFoundException(id));
 
+        // a retried commit whose first attempt went through
+        if (payment.getStatus() == PaymentStatus.COMPLETED) {
+            log.info("2PC COMMIT: Payment {} already captured", id);
+            return PaymentMapper.toDTO(payment);
+        }
+
         if (payment.getStatus() != PaymentStatus.PRE_AUTHORIZED) {
             throw new IllegalStateException(
                 "Cannot commit payment in status: " + payment.getStatus() + ". Expected PRE_AUTHORIZED."
@@ -0,0 +1,49 @@
+package hr.fer.ecommerce.payment.service;
+
+import hr.fer.ecommerce.payment.config.BoundedDataSource;
+import hr.fer.ecommerce.payment.dto.ThreadingStatsDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+@Service
+@RequiredArgsConstructor
+public class ThreadingService {
+
+    private final Environment environment;
+    private final DataSource dataSource;
+    private final ObjectProvider<PinningMonitor> pinningMonitor;
+
+    public ThreadingStatsDto stats() {
+        ThreadingStatsDto.ThreadingStatsDtoBuilder stats = ThreadingStatsDto.builder()
+                .virtualThreads(Threading.VIRTUAL.isActive(environment));
+
+        BoundedDataSource bounded = boundedDataSource();
+        if (bounded != null) {
+            stats.dbPermits(bounded.getSize())
+                    .dbPermitsAvailable(bounded.getAvailable())
+                    .dbPermitWaiters(bounded.getWaiting());
+        }
+
+        PinningMonitor monitor = pinningMonitor.getIfAvailable();
+        if (monitor != null) {
+            stats.pinnedEvents(monitor.getEvents())
+                    .pinnedSites(monitor.sites());
+        }
+        return stats.build();
+    }
+
+    // The bounded source sits underneath the tracing wrapper
+    private BoundedDataSource boundedDataSource() {
+        try {
+            return dataSource.isWrapperFor(BoundedDataSource.class) ? dataSource.unwrap(BoundedDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
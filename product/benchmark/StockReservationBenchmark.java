@@ -0,0 +1,101 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hammers POST /api/products/stock/reserve for a single product from many concurrent callers
+ * and reports reservations per second, failures and whether the remaining stock adds up.
+ *
+ * Run against a started product service:
+ *   java benchmark/StockReservationBenchmark.java [baseUrl] [productId] [callers] [seconds]
+ */
+public class StockReservationBenchmark {
+
+    private static final int INITIAL_STOCK = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8081";
+        long productId = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        int callers = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        String productUrl = baseUrl + "/api/products/" + productId;
+        String product = http.send(HttpRequest.newBuilder(URI.create(productUrl)).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        String restocked = product.replaceFirst("\"stockQuantity\":\\d+", "\"stockQuantity\":" + INITIAL_STOCK);
+        http.send(HttpRequest.newBuilder(URI.create(productUrl))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(restocked))
+                .build(), HttpResponse.BodyHandlers.discarding());
+
+        HttpRequest reserve = HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/stock/reserve"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"items\":[{\"productId\":" + productId + ",\"quantity\":1}]}"))
+                .build();
+
+        AtomicLong reserved = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        CountDownLatch done = new CountDownLatch(callers);
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+
+        long start = System.nanoTime();
+        try (var callerThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < callers; i++) {
+                callerThreads.execute(() -> {
+                    try {
+                        while (System.nanoTime() < deadline) {
+                            long callStart = System.nanoTime();
+                            try {
+                                int status = http.send(reserve, HttpResponse.BodyHandlers.discarding()).statusCode();
+                                (status == 200 ? reserved : failed).incrementAndGet();
+                            } catch (Exception e) {
+                                failed.incrementAndGet();
+                            }
+                            latencies.add(System.nanoTime() - callStart);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        String after = http.send(HttpRequest.newBuilder(URI.create(productUrl)).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        Matcher stock = Pattern.compile("\"stockQuantity\":(\\d+)").matcher(after);
+        long remaining = stock.find() ? Long.parseLong(stock.group(1)) : -1;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("callers=%d duration=%.1fs%n", callers, elapsed);
+        System.out.printf("reserved=%d failed=%d reservations/s=%.0f%n",
+                reserved.get(), failed.get(), reserved.get() / elapsed);
+        System.out.printf("latency p50=%.1fms p99=%.1fms%n", percentile(sorted, 0.50), percentile(sorted, 0.99));
+        System.out.printf("stock consistent=%b (expected %d, actual %d)%n",
+                INITIAL_STOCK - reserved.get() == remaining, INITIAL_STOCK - reserved.get(), remaining);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,46 @@
+package hr.fer.ecommerce.product.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+// Runs before the tracing wrapper, so time spent waiting for a permit still counts as database time
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@RequiredArgsConstructor
+@Slf4j
+public class BoundedDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+    // Looked up when the data source is wrapped, so the config bean itself is created after every post-processor
+    private final ObjectProvider<VirtualThreadsConfig> virtualThreadsConfig;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || bean instanceof BoundedDataSource || bean instanceof TracingDataSource) {
+            return bean;
+        }
+        VirtualThreadsConfig config = virtualThreadsConfig.getObject();
+        int permits = config.getDbPermits();
+        if (permits <= 0) {
+            if (!(bean instanceof HikariDataSource hikari)) {
+                return bean;
+            }
+            permits = hikari.getMaximumPoolSize();
+        }
+        log.info("Database access limited to {} concurrent threads", permits);
+        return new BoundedDataSource(dataSource, permits, config.getDbPermitTimeout());
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,40 @@
+package hr.fer.ecommerce.product.config;
+
+import hr.fer.ecommerce.product.exception.DeadlineExceededException;
+
+// Deadline of the request being served, sent by the caller as epoch milliseconds. Work finished after it
+// is wasted because the caller has already given up, so it is checked before database work and outbound calls.
+public final class RequestDeadline {
+
+    public static final String HEADER = "X-Request-Deadline";
+
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    public static Long current() {
+        return CURRENT.get();
+    }
+
+    // Milliseconds left, or null when the request has no deadline
+    public static Long remainingMillis() {
+        Long deadline = CURRENT.get();
+        return deadline != null ? deadline - System.currentTimeMillis() : null;
+    }
+
+    public static void check() {
+        Long remaining = remainingMillis();
+        if (remaining != null && remaining <= 0) {
+            throw new DeadlineExceededException(-remaining);
+        }
+    }
+
+    static void set(Long deadline) {
+        CURRENT.set(deadline);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
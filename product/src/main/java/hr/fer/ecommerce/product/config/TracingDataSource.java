@@ -0,0 +1,84 @@
+package hr.fer.ecommerce.product.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+// Counts waiting for a pooled connection, executing statements and committing as database time of the
+// current span. Outside a traced request the calls pass straight through.
+public class TracingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> TIMED_CONNECTION_METHODS = Set.of("commit", "rollback");
+
+    public TracingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection connection = super.getConnection();
+        record(start);
+        return trace(connection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        Connection connection = super.getConnection(username, password);
+        record(start);
+        return trace(connection);
+    }
+
+    private static Connection trace(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = TIMED_CONNECTION_METHODS.contains(method.getName())
+                            ? timed(connection, method, args)
+                            : invoke(connection, method, args);
+                    if (result instanceof Statement statement && method.getReturnType().isInterface()) {
+                        return trace(statement, method.getReturnType());
+                    }
+                    return result;
+                });
+    }
+
+    // Proxies the interface the caller asked for (Statement, PreparedStatement or CallableStatement)
+    private static Object trace(Statement statement, Class<?> type) {
+        return Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> method.getName().startsWith("execute")
+                        ? timed(statement, method, args)
+                        : invoke(statement, method, args));
+    }
+
+    private static Object timed(Object target, Method method, Object[] args) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return invoke(target, method, args);
+        } finally {
+            record(start);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void record(long start) {
+        TraceContext context = TraceContext.current();
+        if (context != null) {
+            context.recordDb(System.nanoTime() - start);
+        }
+    }
+}
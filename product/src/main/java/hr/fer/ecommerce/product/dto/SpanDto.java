@@ -0,0 +1,36 @@
+package hr.fer.ecommerce.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// One timed hop of a trace. Server spans carry the database and outbound time of their request;
+// client spans carry the callee in peer, so client minus server time is the cost of the hop itself.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SpanDto {
+
+    public static final String SERVER = "SERVER";
+    public static final String CLIENT = "CLIENT";
+
+    private String traceId;
+    private String spanId;
+    private String parentSpanId;
+    private String service;
+    private String kind;
+    private String name;
+    private String peer;
+    private Integer status;
+    private String error;
+    private Instant startedAt;
+    private double durationMs;
+    private Double dbMs;
+    private Integer dbCalls;
+    private Double outboundMs;
+    private Integer outboundCalls;
+}
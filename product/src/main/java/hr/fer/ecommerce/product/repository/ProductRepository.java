@@ -2,9 +2,27 @@ package hr.fer.ecommerce.product.repository;
 
 import hr.fer.ecommerce.product.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
-}
 
+    // Conditional decrement in the database; returns 0 when the product is missing or has too little stock.
+    // The version bump keeps concurrent entity updates (updateProduct) from overwriting the new stock level.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, " +
+           "p.version = p.version + 1, p.updatedAt = :now " +
+           "WHERE p.id = :id AND p.stockQuantity >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity, " +
+           "p.version = p.version + 1, p.updatedAt = :now " +
+           "WHERE p.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+}
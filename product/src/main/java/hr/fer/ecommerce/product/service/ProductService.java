@@ -1,5 +1,6 @@
 package hr.fer.ecommerce.product.service;
 
+import hr.fer.ecommerce.product.config.RequestDeadline;
 import hr.fer.ecommerce.product.dto.ProductDto;
 import hr.fer.ecommerce.product.dto.ProductRequestDto;
 import hr.fer.ecommerce.product.dto.StockReservationRequest;
@@ -11,11 +12,23 @@ import hr.fer.ecommerce.product.model.Product;
 import hr.fer.ecommerce.product.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -23,6 +36,9 @@ public class ProductService {
 
     private final ProductRepository productRepository;
 
+    @Value("${product.batch.max-size:100}")
+    private int maxBatchSize;
+
     @Transactional(readOnly = true)
     public Page<ProductDto> getAllProducts(Pageable pageable) {
         return productRepository.findAll(pageable)
@@ -36,6 +52,24 @@ public class ProductService {
         return ProductMapper.toDTO(product);
     }
 
+    @Transactional(readOnly = true)
+    public List<ProductDto> getProductsByIds(Collection<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        if (uniqueIds.size() > maxBatchSize) {
+            throw new IllegalArgumentException(
+                "Batch lookup supports at most " + maxBatchSize + " products, requested " + uniqueIds.size());
+        }
+
+        Map<Long, Product> products = productRepository.findAllById(uniqueIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        return uniqueIds.stream()
+                .map(id -> Optional.ofNullable(products.get(id))
+                        .orElseThrow(() -> new ProductNotFoundException(id)))
+                .map(ProductMapper::toDTO)
+                .toList();
+    }
+
     @Transactional
     public ProductDto createProduct(ProductRequestDto request) {
         Product product = ProductMapper.toEntity(request);
@@ -87,55 +121,58 @@ public class ProductService {
     }
 
 
+    // Items are merged per product and applied in ascending product ID order, so concurrent multi-item
+    // reservations always lock rows in the same order. Any failure rolls back the whole reservation.
     @Transactional
     public void reserveStock(StockReservationRequest request) {
         log.info("Reserving stock for {} items", request.getItems().size());
+        LocalDateTime now = LocalDateTime.now();
 
-        for (StockValidationRequest item : request.getItems()) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new ProductNotFoundException(item.getProductId()));
+        for (Map.Entry<Long, Integer> item : quantitiesByProductId(request).entrySet()) {
+            Long productId = item.getKey();
+            int quantity = item.getValue();
+
+            if (productRepository.decrementStock(productId, quantity, now) == 0) {
+                Product product = productRepository.findById(productId)
+                        .orElseThrow(() -> new ProductNotFoundException(productId));
 
-            if (product.getStockQuantity() < item.getQuantity()) {
                 log.error("Insufficient stock during reservation for product {}: requested={}, available={}",
-                    product.getId(), item.getQuantity(), product.getStockQuantity());
-                throw new InsufficientStockException(
-                    product.getId(),
-                    item.getQuantity(),
-                    product.getStockQuantity()
-                );
+                    productId, quantity, product.getStockQuantity());
+                throw new InsufficientStockException(productId, quantity, product.getStockQuantity());
             }
 
-            product.setStockQuantity(product.getStockQuantity() - item.getQuantity());
-            productRepository.save(product);
-
-            log.info("Reserved {} units of product {}, remaining stock: {}",
-                item.getQuantity(), product.getId(), product.getStockQuantity());
+            log.info("Reserved {} units of product {}", quantity, productId);
         }
 
+        // a caller that has given up would never release this reservation, so it is rolled back instead
+        RequestDeadline.check();
         log.info("Stock reservation completed successfully");
     }
 
     @Transactional
     public void releaseStock(StockReservationRequest request) {
         log.info("Releasing stock for {} items (rollback)", request.getItems().size());
+        LocalDateTime now = LocalDateTime.now();
 
-        for (StockValidationRequest item : request.getItems()) {
-            try {
-                Product product = productRepository.findById(item.getProductId())
-                        .orElseThrow(() -> new ProductNotFoundException(item.getProductId()));
-
-                product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-                productRepository.save(product);
-
-                log.info("Released {} units of product {}, new stock: {}",
-                    item.getQuantity(), product.getId(), product.getStockQuantity());
-            } catch (Exception e) {
-                log.error("Failed to release stock for product {}: {}",
-                    item.getProductId(), e.getMessage(), e);
+        for (Map.Entry<Long, Integer> item : quantitiesByProductId(request).entrySet()) {
+            if (productRepository.incrementStock(item.getKey(), item.getValue(), now) == 0) {
+                log.error("Failed to release stock for product {}: product not found", item.getKey());
+                continue;
             }
+
+            log.info("Released {} units of product {}", item.getValue(), item.getKey());
         }
 
         log.info("Stock release completed");
     }
+
+    private Map<Long, Integer> quantitiesByProductId(StockReservationRequest request) {
+        return request.getItems().stream()
+                .collect(Collectors.toMap(
+                        StockValidationRequest::getProductId,
+                        StockValidationRequest::getQuantity,
+                        Integer::sum,
+                        TreeMap::new));
+    }
 }
 
@@ -0,0 +1,150 @@
+package hr.fer.ecommerce.product.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import hr.fer.ecommerce.product.config.TracingConfig;
+import hr.fer.ecommerce.product.dto.SpanDto;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps the most recent spans in memory for the trace endpoint and appends every span to a rotating
+// JSON-lines file. Request threads only enqueue; the scheduler thread does the file writes.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SpanStore {
+
+    private final TracingConfig tracingConfig;
+    private final ObjectMapper objectMapper;
+
+    @Value("${spring.application.name}")
+    private String serviceName;
+
+    // Oldest first; guarded by its own monitor
+    private final Deque<SpanDto> spans = new ArrayDeque<>();
+
+    // ConcurrentLinkedQueue is unbounded, so the bound is enforced with a separate counter
+    private final ConcurrentLinkedQueue<SpanDto> exportQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public void record(SpanDto span) {
+        span.setService(serviceName);
+        synchronized (spans) {
+            if (spans.size() >= tracingConfig.getMaxSpans()) {
+                spans.removeFirst();
+            }
+            spans.addLast(span);
+        }
+
+        TracingConfig.ExportConfig export = tracingConfig.getExport();
+        if (!export.isEnabled()) {
+            return;
+        }
+        if (queued.incrementAndGet() > export.getCapacity()) {
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        exportQueue.offer(span);
+    }
+
+    public List<SpanDto> trace(String traceId) {
+        List<SpanDto> trace = new ArrayList<>();
+        synchronized (spans) {
+            for (SpanDto span : spans) {
+                if (span.getTraceId().equals(traceId)) {
+                    trace.add(span);
+                }
+            }
+        }
+        trace.sort(Comparator.comparing(SpanDto::getStartedAt));
+        return trace;
+    }
+
+    // Newest first
+    public List<SpanDto> recent(int limit) {
+        List<SpanDto> recent = new ArrayList<>(limit);
+        synchronized (spans) {
+            Iterator<SpanDto> iterator = spans.descendingIterator();
+            while (iterator.hasNext() && recent.size() < limit) {
+                recent.add(iterator.next());
+            }
+        }
+        return recent;
+    }
+
+    @Scheduled(fixedDelayString = "${tracing.export.flush-interval:1s}")
+    public void export() {
+        if (exportQueue.isEmpty()) {
+            return;
+        }
+
+        TracingConfig.ExportConfig export = tracingConfig.getExport();
+        Path file = Path.of(export.getFile());
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            rotateIfFull(file, export);
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                SpanDto span;
+                while ((span = exportQueue.poll()) != null) {
+                    queued.decrementAndGet();
+                    writer.write(objectMapper.writeValueAsString(span));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            // spans left in the queue are retried on the next run
+            log.warn("Failed to export spans to {}: {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void exportOnShutdown() {
+        export();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    // spans.jsonl becomes spans.jsonl.1, the previous .1 becomes .2, and the oldest file is deleted
+    private void rotateIfFull(Path file, TracingConfig.ExportConfig export) throws IOException {
+        if (!Files.exists(file) || Files.size(file) < export.getMaxFileSize().toBytes()) {
+            return;
+        }
+        Files.deleteIfExists(rotated(file, export.getMaxFiles()));
+        for (int index = export.getMaxFiles() - 1; index >= 1; index--) {
+            Path source = rotated(file, index);
+            if (Files.exists(source)) {
+                Files.move(source, rotated(file, index + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, rotated(file, 1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rotated(Path file, int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
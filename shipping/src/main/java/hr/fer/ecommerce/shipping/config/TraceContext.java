@@ -0,0 +1,104 @@
+package hr.fer.ecommerce.shipping.config;
+
+import lombok.Getter;
+
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Trace and span of the request this thread is working for, carried between services in the W3C traceparent
+// header. The server span also sums the time its request spent in the database and in outbound calls.
+public final class TraceContext {
+
+    public static final String HEADER = "traceparent";
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+    @Getter
+    private final String traceId;
+    @Getter
+    private final String spanId;
+    @Getter
+    private final String parentSpanId;
+
+    private final LongAdder dbNanos = new LongAdder();
+    private final LongAdder dbCalls = new LongAdder();
+    private final LongAdder outboundNanos = new LongAdder();
+    private final LongAdder outboundCalls = new LongAdder();
+
+    private TraceContext(String traceId, String spanId, String parentSpanId) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+    }
+
+    // Continues the caller's trace, or starts a new one when the header is missing or malformed
+    public static TraceContext fromHeader(String traceparent) {
+        if (traceparent != null) {
+            String[] parts = traceparent.split("-");
+            if (parts.length == 4 && parts[1].length() == 32 && parts[2].length() == 16) {
+                return new TraceContext(parts[1], newSpanId(), parts[2]);
+            }
+        }
+        return new TraceContext(randomHex(16), newSpanId(), null);
+    }
+
+    public static TraceContext current() {
+        return CURRENT.get();
+    }
+
+    public static String newSpanId() {
+        return randomHex(8);
+    }
+
+    // Header value that makes the given span the parent of the callee's server span
+    public String header(String childSpanId) {
+        return "00-" + traceId + "-" + childSpanId + "-01";
+    }
+
+    public void recordDb(long nanos) {
+        dbNanos.add(nanos);
+        dbCalls.increment();
+    }
+
+    public void recordOutbound(long nanos) {
+        outboundNanos.add(nanos);
+        outboundCalls.increment();
+    }
+
+    // Calls made in parallel each add their full time, so the sums can exceed the span's duration
+    public double getDbMs() {
+        return millis(dbNanos.sum());
+    }
+
+    public int getDbCalls() {
+        return dbCalls.intValue();
+    }
+
+    public double getOutboundMs() {
+        return millis(outboundNanos.sum());
+    }
+
+    public int getOutboundCalls() {
+        return outboundCalls.intValue();
+    }
+
+    public static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    static void set(TraceContext context) {
+        CURRENT.set(context);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    private static String randomHex(int bytes) {
+        byte[] value = new byte[bytes];
+        ThreadLocalRandom.current().nextBytes(value);
+        return HexFormat.of().formatHex(value);
+    }
+}
@@ -0,0 +1,22 @@
+package hr.fer.ecommerce.shipping.controller;
+
+import hr.fer.ecommerce.shipping.dto.ThreadingStatsDto;
+import hr.fer.ecommerce.shipping.service.ThreadingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/threading")
+@RequiredArgsConstructor
+public class ThreadingController {
+
+    private final ThreadingService threadingService;
+
+    @GetMapping
+    public ResponseEntity<ThreadingStatsDto> getThreadingStats() {
+        return ResponseEntity.ok(threadingService.stats());
+    }
+}
@@ -21,5 +21,10 @@ public class ShipmentRequestDto {
     private String carrier;
 
     private LocalDateTime estimatedDeliveryDate;
+
+    // set by a 2PC coordinator that prepares the shipment before the order row exists; read from the order otherwise
+    private String customerName;
+    private String customerEmail;
+    private String shippingAddress;
 }
 
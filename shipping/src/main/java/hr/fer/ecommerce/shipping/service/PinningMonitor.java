@@ -0,0 +1,112 @@
+package hr.fer.ecommerce.shipping.service;
+
+import hr.fer.ecommerce.shipping.config.VirtualThreadsConfig;
+import hr.fer.ecommerce.shipping.dto.ThreadingStatsDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Reports virtual threads pinned to their carrier, e.g. blocking inside a synchronized block, which holds
+// a carrier thread for as long as the block waits. JFR records the pins in-process, so no JVM flags are
+// needed; each call site is logged once and counted from then on.
+@Service
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(prefix = "virtual-threads.pinning", name = "enabled", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class PinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "hr.fer.ecommerce.";
+
+    private final VirtualThreadsConfig virtualThreadsConfig;
+
+    private final Map<String, Site> sites = new ConcurrentHashMap<>();
+    private final LongAdder events = new LongAdder();
+    private RecordingStream stream;
+
+    @PostConstruct
+    void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT)
+                .withThreshold(virtualThreadsConfig.getPinning().getThreshold())
+                .withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::record);
+        stream.startAsync();
+        log.info("Watching for virtual threads pinned longer than {} ms",
+                virtualThreadsConfig.getPinning().getThreshold().toMillis());
+    }
+
+    @PreDestroy
+    void stop() {
+        stream.close();
+    }
+
+    public long getEvents() {
+        return events.sum();
+    }
+
+    public List<ThreadingStatsDto.PinnedSite> sites() {
+        return sites.entrySet().stream()
+                .map(entry -> ThreadingStatsDto.PinnedSite.builder()
+                        .site(entry.getKey())
+                        .count(entry.getValue().count.sum())
+                        .maxMillis(entry.getValue().maxMillis.get())
+                        .build())
+                .sorted(Comparator.comparingLong(ThreadingStatsDto.PinnedSite::getCount).reversed())
+                .toList();
+    }
+
+    private void record(RecordedEvent event) {
+        events.increment();
+        String site = site(event.getStackTrace());
+        long millis = event.getDuration().toMillis();
+
+        Site known = sites.get(site);
+        if (known == null) {
+            if (sites.size() >= virtualThreadsConfig.getPinning().getMaxSites()) {
+                return;
+            }
+            known = sites.computeIfAbsent(site, key -> {
+                log.warn("Virtual thread pinned for {} ms at {}", millis, key);
+                return new Site();
+            });
+        }
+        known.count.increment();
+        known.maxMillis.accumulateAndGet(millis, Math::max);
+    }
+
+    // The innermost application frame says which of our calls pinned; without one the top frame is used
+    private static String site(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        RecordedFrame frame = frames.stream()
+                .filter(candidate -> candidate.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE))
+                .findFirst()
+                .orElse(frames.getFirst());
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static class Site {
+        private final LongAdder count = new LongAdder();
+        private final AtomicLong maxMillis = new AtomicLong();
+    }
+}
@@ -118,7 +118,7 @@ public class ShipmentService {
     public void validateShipmentReadiness(ShipmentRequestDto request) {
         log.info("Validating shipment readiness for order: {}", request.getOrderId());
 
-        OrderDto order = orderClient.getOrder(request.getOrderId());
+        OrderDto order = recipient(request);
 
         if (!carrierService.validateCarrierAvailability(request.getCarrier())) {
             throw new CarrierUnavailableException(request.getCarrier());
@@ -135,6 +135,18 @@ public class ShipmentService {
         log.info("Shipment validation passed for order: {}", request.getOrderId());
     }
 
+    private OrderDto recipient(ShipmentRequestDto request) {
+        if (request.getShippingAddress() == null) {
+            return orderClient.getOrder(request.getOrderId());
+        }
+        return OrderDto.builder()
+                .id(request.getOrderId())
+                .customerName(request.getCustomerName())
+                .customerEmail(request.getCustomerEmail())
+                .shippingAddress(request.getShippingAddress())
+                .build();
+    }
+
     @Transactional
     public ShipmentDto updateShipmentStatus(Long id, ShipmentStatusUpdateDto request) {
         Shipment shipment = shipmentRepository.findById(id)
@@ -208,7 +220,7 @@ public class ShipmentService {
 
         validateShipmentReadiness(request);
 
-        OrderDto order = orderClient.getOrder(request.getOrderId());
+        OrderDto order = recipient(request);
 
         if (!carrierService.validateCarrierAvailability(request.getCarrier())) {
             throw new CarrierUnavailableException(request.getCarrier());
@@ -249,6 +261,12 @@ public class ShipmentService {
         Shipment shipment = shipmentRepository.findById(id)
                 .orElseThrow(() -> new ShipmentNotFoundException(id));
 
+        // a retried commit whose first attempt went through
+        if (shipment.getStatus() == ShipmentStatus.PREPARING) {
+            log.info("2PC COMMIT: Shipment {} already confirmed", id);
+            return ShipmentMapper.toDTO(shipment);
+        }
+
         if (shipment.getStatus() != ShipmentStatus.RESERVED) {
             throw new IllegalStateException(
                 "Cannot commit shipment in status: " + shipment.getStatus() + ". Expected RESERVED."